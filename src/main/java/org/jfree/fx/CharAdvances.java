@@ -0,0 +1,220 @@
+/* ============
+ * FXGraphics2D
+ * ============
+ * 
+ * (C)opyright 2014-present, by David Gilbert.
+ * 
+ * https://github.com/jfree/fxgraphics2d
+ *
+ * The FXGraphics2D class has been developed by David Gilbert for
+ * use in Orson Charts (https://github.com/jfree/orson-charts) and
+ * JFreeChart (http://www.jfree.org/jfreechart).  It may be useful for other
+ * code that uses the Graphics2D API provided by Java2D.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *   - Redistributions of source code must retain the above copyright
+ *     notice, this list of conditions and the following disclaimer.
+ *   - Redistributions in binary form must reproduce the above copyright
+ *     notice, this list of conditions and the following disclaimer in the
+ *     documentation and/or other materials provided with the distribution.
+ *   - Neither the name of JFree.org nor the names of its contributors may
+ *     be used to endorse or promote products derived from this software
+ *     without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF
+ * THE POSSIBILITY OF SUCH DAMAGE.
+ * 
+ */
+package org.jfree.fx;
+
+import java.awt.Font;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.ToDoubleFunction;
+import javafx.geometry.Bounds;
+import javafx.scene.text.Text;
+
+/**
+ * A table of character advance widths for one font, covering the Latin 
+ * range of the Basic Multilingual Plane, plus the top and height of a line
+ * of text (which do not depend on the characters in the line).  Advances 
+ * are measured lazily (with a JavaFX {@code Text} node) the first time each
+ * character is used, after which the width of a string in this range is a
+ * simple sum.  Control characters and characters outside the range are 
+ * not handled, so that callers fall back to a full text layout (which 
+ * handles complex scripts).
+ * A table can be disabled if its results are found not to match the text 
+ * layout for the font (for example, because the font applies kerning).
+ */
+final class CharAdvances {
+
+    /** The number of characters covered by the table. */
+    static final int TABLE_SIZE = 0x0250;
+
+    /** The maximum number of tables before the shared map is cleared. */
+    private static final int MAX_TABLES = 64;
+
+    /** The tables, keyed by font. */
+    private static final Map<Font, CharAdvances> TABLES 
+            = new ConcurrentHashMap<>();
+
+    /** The advances, {@code NaN} for characters not yet measured. */
+    private final float[] advances;
+
+    /** The function that measures the width of a string. */
+    private final ToDoubleFunction<String> measurer;
+
+    /** The y-coordinate of the top of a line, relative to the baseline. */
+    private final double lineTop;
+
+    /** The height of a line. */
+    private final double lineHeight;
+
+    /** A flag that disables the table. */
+    private volatile boolean disabled;
+
+    /**
+     * Creates a new table.
+     * 
+     * @param measurer  the function used to measure single characters 
+     *     ({@code null} not permitted).
+     * @param lineTop  the y-coordinate of the top of a line, relative to the
+     *     baseline.
+     * @param lineHeight  the height of a line.
+     */
+    CharAdvances(ToDoubleFunction<String> measurer, double lineTop, 
+            double lineHeight) {
+        this.advances = new float[TABLE_SIZE];
+        Arrays.fill(this.advances, Float.NaN);
+        this.measurer = measurer;
+        this.lineTop = lineTop;
+        this.lineHeight = lineHeight;
+    }
+
+    /**
+     * Returns the (shared) table for the specified font.
+     * 
+     * @param font  the font ({@code null} not permitted).
+     * 
+     * @return The table (never {@code null}).
+     */
+    static CharAdvances forFont(Font font) {
+        CharAdvances result = TABLES.get(font);
+        if (result == null) {
+            if (TABLES.size() >= MAX_TABLES) {
+                TABLES.clear();
+            }
+            final javafx.scene.text.Font fxFont = FontCache.SHARED.get(font);
+            Text line = new Text("X");
+            line.setFont(fxFont);
+            Bounds b = line.getLayoutBounds();
+            result = new CharAdvances(s -> {
+                Text text = new Text(s);
+                text.setFont(fxFont);
+                return text.getLayoutBounds().getWidth();
+            }, b.getMinY(), b.getHeight());
+            TABLES.put(font, result);
+        }
+        return result;
+    }
+
+    /**
+     * Returns {@code true} if the character is covered by the table.
+     * 
+     * @param c  the character.
+     * 
+     * @return A boolean. 
+     */
+    static boolean isCovered(char c) {
+        return c >= 0x20 && c < TABLE_SIZE && (c < 0x7F || c > 0x9F);
+    }
+
+    /**
+     * Returns the advance for a character, or {@code NaN} if the character
+     * is not covered by the table (or the table is disabled).
+     * 
+     * @param c  the character.
+     * 
+     * @return The advance. 
+     */
+    double advance(char c) {
+        if (this.disabled || !isCovered(c)) {
+            return Double.NaN;
+        }
+        float a = this.advances[c];
+        if (Float.isNaN(a)) {
+            a = (float) this.measurer.applyAsDouble(String.valueOf(c));
+            this.advances[c] = a;
+        }
+        return a;
+    }
+
+    /**
+     * Returns the total advance for a range of characters, or {@code NaN} if
+     * any character in the range is not covered by the table.
+     * 
+     * @param text  the text ({@code null} not permitted).
+     * @param begin  the index of the first character.
+     * @param limit  the index after the last character.
+     * 
+     * @return The total advance. 
+     */
+    double width(CharSequence text, int begin, int limit) {
+        double result = 0.0;
+        for (int i = begin; i < limit; i++) {
+            double a = advance(text.charAt(i));
+            if (Double.isNaN(a)) {
+                return Double.NaN;
+            }
+            result += a;
+        }
+        return result;
+    }
+
+    /**
+     * Returns the y-coordinate of the top of a line of text, relative to the
+     * baseline.
+     * 
+     * @return The line top. 
+     */
+    double getLineTop() {
+        return this.lineTop;
+    }
+
+    /**
+     * Returns the height of a line of text.
+     * 
+     * @return The line height. 
+     */
+    double getLineHeight() {
+        return this.lineHeight;
+    }
+
+    /**
+     * Returns {@code true} if the table is disabled.
+     * 
+     * @return A boolean. 
+     */
+    boolean isDisabled() {
+        return this.disabled;
+    }
+
+    /**
+     * Disables the table, so that all requests return {@code NaN}.
+     */
+    void disable() {
+        this.disabled = true;
+    }
+
+}
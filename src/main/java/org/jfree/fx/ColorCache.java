@@ -0,0 +1,184 @@
+/* ============
+ * FXGraphics2D
+ * ============
+ * 
+ * (C)opyright 2014-present, by David Gilbert.
+ * 
+ * https://github.com/jfree/fxgraphics2d
+ *
+ * The FXGraphics2D class has been developed by David Gilbert for
+ * use in Orson Charts (https://github.com/jfree/orson-charts) and
+ * JFreeChart (http://www.jfree.org/jfreechart).  It may be useful for other
+ * code that uses the Graphics2D API provided by Java2D.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *   - Redistributions of source code must retain the above copyright
+ *     notice, this list of conditions and the following disclaimer.
+ *   - Redistributions in binary form must reproduce the above copyright
+ *     notice, this list of conditions and the following disclaimer in the
+ *     documentation and/or other materials provided with the distribution.
+ *   - Neither the name of JFree.org nor the names of its contributors may
+ *     be used to endorse or promote products derived from this software
+ *     without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF
+ * THE POSSIBILITY OF SUCH DAMAGE.
+ * 
+ */
+package org.jfree.fx;
+
+import java.awt.Color;
+import java.util.Arrays;
+
+/**
+ * A cache that maps AWT colors to the equivalent JavaFX colors, so that
+ * repeatedly switching between the same small set of colors does not create
+ * a new JavaFX {@code Color} each time.  The cache is keyed on the ARGB value
+ * of the AWT color and uses open addressing on primitive arrays (no boxing).
+ * A single instance is shared by all {@link FXGraphics2D} instances.
+ */
+final class ColorCache {
+
+    /** The shared instance. */
+    static final ColorCache SHARED = new ColorCache(256);
+
+    /** The ARGB keys. */
+    private final int[] keys;
+
+    /** The JavaFX colors ({@code null} marks an empty slot). */
+    private final javafx.scene.paint.Color[] values;
+
+    /** A mask used to map hash codes to slots. */
+    private final int mask;
+
+    /** The maximum number of entries before the cache is cleared. */
+    private final int threshold;
+
+    /** The number of entries in the cache. */
+    private int count;
+
+    /** The number of lookups that found a cached color. */
+    private long hitCount;
+
+    /** The number of lookups that required a new color to be created. */
+    private long missCount;
+
+    /**
+     * Creates a new cache.
+     *
+     * @param capacity  the number of slots (must be a power of 2).
+     */
+    ColorCache(int capacity) {
+        if (Integer.bitCount(capacity) != 1) {
+            throw new IllegalArgumentException(
+                    "Capacity must be a power of 2: " + capacity);
+        }
+        this.keys = new int[capacity];
+        this.values = new javafx.scene.paint.Color[capacity];
+        this.mask = capacity - 1;
+        this.threshold = capacity * 3 / 4;
+    }
+
+    /**
+     * Returns a JavaFX color that is equivalent to the specified AWT color.
+     *
+     * @param c  the color ({@code null} not permitted).
+     *
+     * @return A JavaFX color (never {@code null}).
+     */
+    javafx.scene.paint.Color get(Color c) {
+        return get(c.getRGB());
+    }
+
+    /**
+     * Returns a JavaFX color that is equivalent to the specified ARGB value
+     * (as returned by {@link Color#getRGB()}).
+     *
+     * @param argb  the ARGB value.
+     *
+     * @return A JavaFX color (never {@code null}).
+     */
+    synchronized javafx.scene.paint.Color get(int argb) {
+        int i = slot(argb);
+        javafx.scene.paint.Color result;
+        while ((result = this.values[i]) != null) {
+            if (this.keys[i] == argb) {
+                this.hitCount++;
+                return result;
+            }
+            i = (i + 1) & this.mask;
+        }
+        this.missCount++;
+        result = javafx.scene.paint.Color.rgb((argb >> 16) & 0xFF,
+                (argb >> 8) & 0xFF, argb & 0xFF, (argb >>> 24) / 255.0);
+        if (this.count >= this.threshold) {
+            // the cache is sized well above the number of colors in typical
+            // use, so when it fills up we just start again
+            clear();
+            i = slot(argb);
+        }
+        this.keys[i] = argb;
+        this.values[i] = result;
+        this.count++;
+        return result;
+    }
+
+    /**
+     * Returns the initial slot for the specified key.
+     *
+     * @param argb  the key.
+     *
+     * @return The slot index.
+     */
+    private int slot(int argb) {
+        return (argb * 0x9E3779B9) >>> 16 & this.mask;
+    }
+
+    /**
+     * Removes all entries from the cache (the hit and miss counts are not
+     * reset).
+     */
+    synchronized void clear() {
+        Arrays.fill(this.values, null);
+        this.count = 0;
+    }
+
+    /**
+     * Returns the number of entries in the cache.
+     *
+     * @return The number of entries.
+     */
+    synchronized int size() {
+        return this.count;
+    }
+
+    /**
+     * Returns the number of lookups that were satisfied from the cache.
+     *
+     * @return The hit count.
+     */
+    synchronized long getHitCount() {
+        return this.hitCount;
+    }
+
+    /**
+     * Returns the number of lookups that required a new JavaFX color to be
+     * created.
+     *
+     * @return The miss count.
+     */
+    synchronized long getMissCount() {
+        return this.missCount;
+    }
+
+}
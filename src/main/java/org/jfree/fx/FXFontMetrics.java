@@ -43,10 +43,9 @@ import java.awt.FontMetrics;
 import java.awt.Graphics;
 import java.awt.Graphics2D;
 import java.awt.geom.Rectangle2D;
+import java.nio.CharBuffer;
 import java.text.CharacterIterator;
 import javafx.geometry.Bounds;
-import javafx.scene.text.FontPosture;
-import javafx.scene.text.FontWeight;
 import javafx.scene.text.Text;
 
 /**
@@ -54,68 +53,316 @@ import javafx.scene.text.Text;
  * get string bounds, which is more exact than relying on the Java2D/AWT
  * measurements.  The remaining font metrics, however, still come from 
  * Java2D/AWT.
+ * <p>
+ * String bounds are retained in a bounded (least recently used) cache that
+ * is shared by all instances, since the same strings (for example, axis 
+ * labels) are often measured many times.  The cache can be configured with
+ * {@link #setStringBoundsCacheSize(int)}.
+ * <p>
+ * Widths for text in the Latin range of the Basic Multilingual Plane are
+ * computed from a table of character advances for each font, without a 
+ * text layout.  Text containing other characters falls back to a full 
+ * layout.  The table results can be checked against the layout results 
+ * with {@link #setValidateAdvanceWidths(boolean)}.
  * 
  * @since 1.5
  */
 public class FXFontMetrics extends FontMetrics {
 
-    /** The graphics target. */
-    private final Graphics2D g2;
+    /** 
+     * The maximum difference between the advance table width and the 
+     * layout width of a string, before the table is disabled for a font.
+     */
+    private static final double VALIDATION_TOLERANCE = 0.05;
+
+    /** A flag that controls validation of advance table widths. */
+    private static volatile boolean validateAdvanceWidths;
+
+    /** The advance table for the font (created lazily, not serialized). */
+    private transient CharAdvances advances;
     
     /**
      * Creates a new instance.
      * 
      * @param font  the font ({@code null} not permitted).
-     * @param g2  the graphics target ({@code null} not permitted).
+     * @param g2  the graphics target (not used, the measurements do not 
+     *     depend on the graphics target).
      */
     public FXFontMetrics(Font font, Graphics2D g2) {
+        this(font);
+    }
+
+    /**
+     * Creates a new instance.
+     * 
+     * @param font  the font ({@code null} not permitted).
+     */
+    FXFontMetrics(Font font) {
         super(font);
-        this.g2 = g2;
+    }
+
+    /**
+     * Sets the maximum number of entries in the string bounds cache that is
+     * shared by all instances of this class.  Setting the size to zero
+     * disables the cache.
+     * 
+     * @param size  the maximum number of entries (must not be negative).
+     * 
+     * @since 2.1.6
+     */
+    public static void setStringBoundsCacheSize(int size) {
+        StringBoundsCache.SHARED.setMaxSize(size);
+    }
+
+    /**
+     * Returns the maximum number of entries in the string bounds cache.
+     * 
+     * @return The maximum number of entries.
+     * 
+     * @since 2.1.6
+     */
+    public static int getStringBoundsCacheSize() {
+        return StringBoundsCache.SHARED.getMaxSize();
+    }
+
+    /**
+     * Returns the number of string bounds requests that were answered from
+     * the cache.
+     * 
+     * @return The hit count.
+     * 
+     * @since 2.1.6
+     */
+    public static long getStringBoundsCacheHitCount() {
+        return StringBoundsCache.SHARED.getHitCount();
+    }
+
+    /**
+     * Returns the number of string bounds requests that required a text 
+     * layout.
+     * 
+     * @return The miss count.
+     * 
+     * @since 2.1.6
+     */
+    public static long getStringBoundsCacheMissCount() {
+        return StringBoundsCache.SHARED.getMissCount();
+    }
+
+    /**
+     * Removes all entries from the string bounds cache and resets the hit 
+     * and miss counts.
+     * 
+     * @since 2.1.6
+     */
+    public static void clearStringBoundsCache() {
+        StringBoundsCache.SHARED.clear();
+    }
+
+    /**
+     * Returns {@code true} if widths computed from the advance tables are
+     * validated against the text layout width, otherwise {@code false}.
+     * 
+     * @return A boolean.
+     * 
+     * @since 2.1.6
+     */
+    public static boolean isValidateAdvanceWidths() {
+        return validateAdvanceWidths;
+    }
+
+    /**
+     * Sets the flag that controls whether widths computed from the advance
+     * tables are validated against the text layout width.  When a mismatch
+     * is found, the layout width is returned and the advance table is 
+     * disabled for that font.  This is intended for testing, since it 
+     * removes the benefit of the tables.
+     * 
+     * @param validate  the new flag value.
+     * 
+     * @since 2.1.6
+     */
+    public static void setValidateAdvanceWidths(boolean validate) {
+        validateAdvanceWidths = validate;
+    }
+
+    /**
+     * Returns the bounds of a range of characters, writing the result to 
+     * the supplied rectangle.  This method does not copy the characters 
+     * when the bounds can be computed from the advance table for the font
+     * or found in the string bounds cache, so it can be used to measure 
+     * large numbers of strings without creating garbage.
+     * 
+     * @param text  the text ({@code null} not permitted).
+     * @param beginIndex  the index of the first character.
+     * @param limit  the index after the last character.
+     * @param result  the rectangle to receive the bounds ({@code null} 
+     *     permitted, in which case a new rectangle is created).
+     * 
+     * @return The bounds (the {@code result} rectangle, if one was supplied).
+     * 
+     * @since 2.1.6
+     */
+    public Rectangle2D getTextBounds(CharSequence text, int beginIndex, 
+            int limit, Rectangle2D result) {
+        if (result == null) {
+            result = new Rectangle2D.Double();
+        }
+        CharAdvances table = advances();
+        double w = table.width(text, beginIndex, limit);
+        if (!Double.isNaN(w) && !validateAdvanceWidths) {
+            result.setRect(0.0, table.getLineTop(), w, table.getLineHeight());
+            return result;
+        }
+        if (!StringBoundsCache.SHARED.get(this.font, text, beginIndex, limit, 
+                result)) {
+            String str = text.subSequence(beginIndex, limit).toString();
+            Text node = new Text(str);
+            node.setFont(FontCache.SHARED.get(this.font));
+            Bounds b = node.getLayoutBounds();
+            result.setRect(b.getMinX(), b.getMinY(), b.getWidth(), 
+                    b.getHeight());
+            StringBoundsCache.SHARED.put(this.font, str, result);
+        }
+        if (!Double.isNaN(w) 
+                && Math.abs(result.getWidth() - w) > VALIDATION_TOLERANCE) {
+            table.disable();
+        }
+        return result;
     }
 
     @Override
     public Rectangle2D getStringBounds(CharacterIterator ci, int beginIndex, 
             int limit, Graphics context) {
-        char[]  arr = new char[limit - beginIndex];
-        ci.setIndex(beginIndex);
-        for(int idx = 0; idx < arr.length; idx++) {
-            arr[idx] = ci.current();
-            ci.next();
-        }
-        return getStringBounds(arr, beginIndex, limit, context);
+        return getTextBounds(new CharacterIteratorSequence(ci), beginIndex, 
+                limit, null);
     }
 
     @Override
     public Rectangle2D getStringBounds(char[] chars, int beginIndex, int limit, 
             Graphics context) {
-        String str = new String(chars, beginIndex, limit - beginIndex);
-        return getStringBounds(str, context);
+        return getTextBounds(CharBuffer.wrap(chars), beginIndex, limit, 
+                null);
     }
 
     @Override
     public Rectangle2D getStringBounds(String str, int beginIndex, int limit, 
             Graphics context) {
-        String substr = str.substring(beginIndex, limit);
-        return super.getStringBounds(substr, context);
+        return getTextBounds(str, beginIndex, limit, null);
     }
 
     @Override
     public Rectangle2D getStringBounds(String str, Graphics context) {
-        Text text = new Text(str);
-        FontWeight weight = font.isBold() ? FontWeight.BOLD : FontWeight.NORMAL;
-        FontPosture posture = font.isItalic() 
-                ? FontPosture.ITALIC : FontPosture.REGULAR;
-        javafx.scene.text.Font jfxfont = javafx.scene.text.Font.font(
-                font.getFamily(), weight, posture, font.getSize());
-        text.setFont(jfxfont);
-        Bounds b = text.getLayoutBounds();
-        return new Rectangle2D.Double(b.getMinX(), b.getMinY(), b.getWidth(), 
-                b.getHeight());
+        return getTextBounds(str, 0, str.length(), null);
     }
 
     @Override
     public int stringWidth(String str) {
-        return (int) getStringBounds(str, this.g2).getWidth();
+        return (int) width(str, 0, str.length());
+    }
+
+    @Override
+    public int charWidth(char ch) {
+        double a = advances().advance(ch);
+        if (!Double.isNaN(a) && !validateAdvanceWidths) {
+            return (int) a;
+        }
+        return stringWidth(String.valueOf(ch));
+    }
+
+    @Override
+    public int charWidth(int codePoint) {
+        if (!Character.isValidCodePoint(codePoint)) {
+            codePoint = 0xFFFF;
+        }
+        if (Character.isBmpCodePoint(codePoint)) {
+            return charWidth((char) codePoint);
+        }
+        return stringWidth(new String(Character.toChars(codePoint)));
+    }
+
+    @Override
+    public int charsWidth(char[] data, int off, int len) {
+        return (int) width(CharBuffer.wrap(data), off, off + len);
+    }
+
+    @Override
+    public int[] getWidths() {
+        int[] widths = new int[256];
+        for (char ch = 0; ch < 256; ch++) {
+            widths[ch] = charWidth(ch);
+        }
+        return widths;
+    }
+
+    /**
+     * Returns the width of a range of characters, using the advance table
+     * for the font if possible.
+     * 
+     * @param text  the text ({@code null} not permitted).
+     * @param begin  the index of the first character.
+     * @param limit  the index after the last character.
+     * 
+     * @return The width. 
+     */
+    private double width(CharSequence text, int begin, int limit) {
+        double w = advances().width(text, begin, limit);
+        if (!Double.isNaN(w) && !validateAdvanceWidths) {
+            return w;
+        }
+        return getTextBounds(text, begin, limit, null).getWidth();
+    }
+
+    /**
+     * Returns the advance table for the font.
+     * 
+     * @return The advance table (never {@code null}). 
+     */
+    private CharAdvances advances() {
+        if (this.advances == null) {
+            this.advances = CharAdvances.forFont(this.font);
+        }
+        return this.advances;
     }
     
+    /**
+     * A character sequence view of a character iterator, so that the 
+     * characters do not need to be copied for measurement.  Indices are the
+     * same as the iterator indices.
+     */
+    private static final class CharacterIteratorSequence 
+            implements CharSequence {
+
+        private final CharacterIterator iterator;
+
+        CharacterIteratorSequence(CharacterIterator iterator) {
+            this.iterator = iterator;
+        }
+
+        @Override
+        public int length() {
+            return this.iterator.getEndIndex();
+        }
+
+        @Override
+        public char charAt(int index) {
+            return this.iterator.setIndex(index);
+        }
+
+        @Override
+        public CharSequence subSequence(int start, int end) {
+            StringBuilder sb = new StringBuilder(end - start);
+            for (int i = start; i < end; i++) {
+                sb.append(charAt(i));
+            }
+            return sb.toString();
+        }
+
+        @Override
+        public String toString() {
+            return subSequence(this.iterator.getBeginIndex(), 
+                    length()).toString();
+        }
+    }
+
 }
@@ -49,7 +49,6 @@ import java.awt.Graphics2D;
 import java.awt.GraphicsConfiguration;
 import java.awt.Image;
 import java.awt.LinearGradientPaint;
-import java.awt.MultipleGradientPaint;
 import java.awt.Paint;
 import java.awt.RadialGradientPaint;
 import java.awt.Rectangle;
@@ -69,8 +68,8 @@ import java.awt.geom.Line2D;
 import java.awt.geom.NoninvertibleTransformException;
 import java.awt.geom.Path2D;
 import java.awt.geom.PathIterator;
-import java.awt.geom.Point2D;
 import java.awt.geom.Rectangle2D;
+import java.awt.geom.RectangularShape;
 import java.awt.geom.RoundRectangle2D;
 import java.awt.image.BufferedImage;
 import java.awt.image.BufferedImageOp;
@@ -80,27 +79,20 @@ import java.awt.image.RenderedImage;
 import java.awt.image.WritableRaster;
 import java.awt.image.renderable.RenderableImage;
 import java.text.AttributedCharacterIterator;
-import java.util.Arrays;
 import java.util.Hashtable;
 import java.util.Map;
 import java.util.Set;
+import javafx.application.Platform;
 import javafx.embed.swing.SwingFXUtils;
 
+import javafx.scene.Scene;
 import javafx.scene.canvas.Canvas;
 import javafx.scene.canvas.GraphicsContext;
 import javafx.scene.effect.BlendMode;
-import javafx.scene.image.WritableImage;
-import javafx.scene.paint.CycleMethod;
 import javafx.scene.paint.ImagePattern;
-import javafx.scene.paint.LinearGradient;
-import javafx.scene.paint.RadialGradient;
-import javafx.scene.paint.Stop;
 import javafx.scene.shape.ArcType;
 import javafx.scene.shape.FillRule;
-import javafx.scene.shape.StrokeLineCap;
-import javafx.scene.shape.StrokeLineJoin;
-import javafx.scene.text.FontPosture;
-import javafx.scene.text.FontWeight;
+import javafx.stage.Window;
 import org.jfree.fx.GCStateHandler.GCState;
 
 /**
@@ -123,6 +115,126 @@ public class FXGraphics2D extends Graphics2D {
     /** Stores the AWT Color object for get/setColor(). */
     private Color color = Color.BLACK;
 
+    /** 
+     * The fingerprint of the current paint, if it is a gradient (otherwise
+     * {@code null}).
+     */
+    private GradientCache.Key gradientKey;
+
+    /** A spare key that is reused when comparing gradient paints. */
+    private GradientCache.Key spareGradientKey;
+
+    /** A key that is reused to look up proportional gradients. */
+    private GradientCache.Key proportionalKey;
+
+    /** 
+     * The JavaFX equivalent of the current paint ({@code null} if the paint
+     * is not recognised).  This is resolved lazily, see {@link #fxPaint()}.
+     */
+    private javafx.scene.paint.Paint fxPaint;
+
+    /** A flag that indicates whether {@code fxPaint} is up-to-date. */
+    private boolean fxPaintResolved;
+
+    /** 
+     * A flag that caches the value of the 
+     * {@link FXHints#KEY_PROPORTIONAL_GRADIENTS} hint.
+     */
+    private boolean proportionalGradients;
+
+    /** 
+     * A flag that caches the value of the 
+     * {@link FXHints#KEY_CACHE_STROKED_SHAPES} hint.
+     */
+    private boolean cacheStrokedShapes;
+
+    /** 
+     * A flag that caches the value of the 
+     * {@link FXHints#KEY_CACHE_TEXT_SPRITES} hint.
+     */
+    private boolean cacheTextSprites;
+
+    /** 
+     * The path version from the {@link FXHints#KEY_CACHE_SHAPE_PATHS} hint,
+     * or {@code null} if shape paths are not cached.
+     */
+    private Object shapePathVersion;
+
+    /** 
+     * A flag that caches the value of the 
+     * {@link FXHints#KEY_DECIMATE_LINES} hint.
+     */
+    private boolean decimateLines;
+
+    /** 
+     * A flag that caches the value of the 
+     * {@link FXHints#KEY_CULL_INVISIBLE} hint.
+     */
+    private boolean cullInvisible;
+
+    /** 
+     * A flag that caches the value of the 
+     * {@link FXHints#KEY_BATCH_LINES} hint.
+     */
+    private boolean batchLines;
+
+    /** 
+     * A flag that caches the value of the 
+     * {@link FXHints#KEY_BATCH_RECTS} hint.
+     */
+    private boolean batchRects;
+
+    /** 
+     * The bounds of the clip in device space (computed lazily, 
+     * {@code null} if the clip has changed since they were computed).
+     */
+    private Rectangle2D deviceClipBounds;
+
+    /** 
+     * The inverse of the current transform (computed lazily, see 
+     * {@link #inverseTransform()}).
+     */
+    private AffineTransform inverseTransform;
+
+    /** 
+     * A flag that indicates whether {@code inverseTransform} is valid for
+     * the current transform (it is {@code null} if the transform is not 
+     * invertible).
+     */
+    private boolean inverseTransformValid;
+
+    /** 
+     * The clip in user space (computed lazily, valid only while 
+     * {@code userClipValid} is {@code true}).  It is never returned to
+     * callers directly.
+     */
+    private Shape userClip;
+
+    /** 
+     * The bounds of the clip in user space (computed lazily, valid only 
+     * while {@code userClipValid} is {@code true}).
+     */
+    private Rectangle userClipBounds;
+
+    /** 
+     * A flag that indicates whether {@code userClip} is valid for the 
+     * current clip and transform.
+     */
+    private boolean userClipValid;
+
+    /** 
+     * The size (in device pixels) below which rectangles and ellipses are 
+     * drawn as single pixels (see {@link FXHints#KEY_LOD_THRESHOLD}), zero
+     * if the level-of-detail mode is off.
+     */
+    private double lodThreshold;
+
+    /** The line decimator (created lazily). */
+    private LineDecimator lineDecimator;
+
+    /** A reusable path for looking up cached stroked outlines. */
+    private PackedPath strokedShapeKey;
+
     private Composite composite = AlphaComposite.getInstance(
             AlphaComposite.SRC_OVER, 1.0f);
 
@@ -148,6 +260,42 @@ public class FXGraphics2D extends Graphics2D {
 
     private final GCStateHandler gcHandler;
 
+    /** A bit for the fill paint in {@code dirtyState}. */
+    private static final int FILL_PAINT = 1;
+
+    /** A bit for the stroke paint in {@code dirtyState}. */
+    private static final int STROKE_PAINT = 2;
+
+    /** A bit for the line attributes (from the stroke) in {@code dirtyState}. */
+    private static final int LINE_ATTRIBUTES = 4;
+
+    /** A bit for the font in {@code dirtyState}. */
+    private static final int FONT = 8;
+
+    /** A bit for the global alpha and blend mode in {@code dirtyState}. */
+    private static final int COMPOSITE = 16;
+
+    /** The attributes used when filling shapes. */
+    private static final int FILL_STATE = FILL_PAINT | COMPOSITE;
+
+    /** The attributes used when stroking shapes. */
+    private static final int STROKE_STATE = STROKE_PAINT | LINE_ATTRIBUTES 
+            | COMPOSITE;
+
+    /** The attributes used when drawing text. */
+    private static final int TEXT_STATE = FILL_PAINT | FONT | COMPOSITE;
+
+    /** All attributes. */
+    private static final int ALL_STATE = FILL_PAINT | STROKE_PAINT 
+            | LINE_ATTRIBUTES | FONT | COMPOSITE;
+
+    /**
+     * Attribute changes are not pushed to the graphics context immediately,
+     * instead this field records the attributes that may need to be updated
+     * before the next drawing operation (see {@link #syncState(int)}).
+     */
+    private int dirtyState = ALL_STATE;
+
     /** The GCStateHandler save/restore count, used to restore the original clip in setClip(). */
     private final int saveCount;
 
@@ -178,22 +326,41 @@ public class FXGraphics2D extends Graphics2D {
      */
     private Ellipse2D oval;
 
-    /**
-     * An instance that is used/reused in draw/fillArc to avoid creating a lot of garbage.
+    /** 
+     * A reusable buffer for the x-coordinates of polylines and polygons 
+     * (created lazily, and grown as required).
      */
-    private final Arc2D arc = new Arc2D.Double();
+    private double[] xBuffer;
 
-    /** A hidden image used for font metrics. */
-    private BufferedImage fmImage;
+    /** 
+     * A reusable buffer for the y-coordinates of polylines and polygons 
+     * (created lazily, and grown as required).
+     */
+    private double[] yBuffer;
 
     /** 
-     * A Graphics2D instance for the hidden image that is used for font
-     * metrics.  Used in the getFontMetrics(Font f) method.
+     * The index that records the bounds of the items drawn (shared with 
+     * the copies created by {@link #create()}), {@code null} if picking 
+     * is not enabled.
+     */
+    private FXPickIndex pickIndex;
+
+    /** The current value of the {@link FXHints#KEY_PICK_ID} hint. */
+    private Object pickId;
+
+    /** A buffer for the bounds computed by {@code deviceBounds()}. */
+    private final double[] boundsBuffer = new double[4];
+
+    /** A buffer for the bounds computed by {@code visibleBounds()}. */
+    private final double[] visibleBuffer = new double[4];
+
+    /**
+     * An instance that is used/reused in draw/fillArc to avoid creating a lot of garbage.
      */
-    private Graphics2D fmImageG2;
+    private final Arc2D arc = new Arc2D.Double();
 
-    /** The FXFontMetrics. */
-    private FXFontMetrics fxFontMetrics;
+    /** A reusable rectangle for the text bounds recorded for picking. */
+    private final Rectangle2D textBounds = new Rectangle2D.Double();
 
     /** 
      * The device configuration (this is lazily instantiated in the 
@@ -234,6 +401,7 @@ public class FXGraphics2D extends Graphics2D {
         this.hints = new RenderingHints(RenderingHints.KEY_ANTIALIASING,
                 RenderingHints.VALUE_ANTIALIAS_DEFAULT);
         this.hints.put(FXHints.KEY_USE_FX_FONT_METRICS, true);
+        hintsChanged();
     }
 
     /**
@@ -245,10 +413,11 @@ public class FXGraphics2D extends Graphics2D {
     public Graphics create() {
         FXGraphics2D copy = new FXGraphics2D(this.gcHandler);
         copy.setRenderingHints(getRenderingHints());
+        copy.pickIndex = this.pickIndex;
         // copy clip directly:
         copy.clip = this.clip;
-        copy.setPaint(getPaint());
         copy.setColor(getColor());
+        copy.setPaint(getPaint());
         copy.setComposite(getComposite());
         copy.setStroke(getStroke());
         copy.setFont(getFont());
@@ -262,6 +431,7 @@ public class FXGraphics2D extends Graphics2D {
      */
     @Override
     public void dispose() {
+        this.gcHandler.flush();
         // restore gc state:
         if (this.gcHandler.isStateSavedSince(saveCount)) {
             // restore clip but keep other attributes
@@ -269,6 +439,34 @@ public class FXGraphics2D extends Graphics2D {
         }
     }
 
+    /**
+     * Returns the pick index that records the bounds of the items that are
+     * drawn.
+     * 
+     * @return The pick index (possibly {@code null}).
+     * 
+     * @see #setPickIndex(org.jfree.fx.FXPickIndex) 
+     * 
+     * @since 2.1.6
+     */
+    public FXPickIndex getPickIndex() {
+        return this.pickIndex;
+    }
+
+    /**
+     * Sets the pick index that records the device space bounds of the items
+     * that are drawn while the {@link FXHints#KEY_PICK_ID} hint has a 
+     * non-{@code null} value.  The index is shared with the instances
+     * created by {@link #create()} after this call.
+     * 
+     * @param index  the index ({@code null} permitted, to stop recording).
+     * 
+     * @since 2.1.6
+     */
+    public void setPickIndex(FXPickIndex index) {
+        this.pickIndex = index;
+    }
+
     /**
      * Returns the width to use for the stroke when the AWT stroke
      * specified has a zero width (the default value is {@code 0.5}).  
@@ -296,6 +494,7 @@ public class FXGraphics2D extends Graphics2D {
             throw new IllegalArgumentException("Width cannot be negative.");
         }
         this.zeroStrokeWidth = width;
+        this.dirtyState |= LINE_ATTRIBUTES;
     }
 
     /**
@@ -338,9 +537,11 @@ public class FXGraphics2D extends Graphics2D {
      * accordance with the JDK specification).
      * <br><br>
      * Note that this implementation will map {@link Color}, 
-     * {@link GradientPaint}, {@link LinearGradientPaint} and 
-     * {@link RadialGradientPaint} to JavaFX equivalents, other paint 
-     * implementations are not handled.
+     * {@link GradientPaint}, {@link LinearGradientPaint}, 
+     * {@link RadialGradientPaint} and {@link TexturePaint} to JavaFX 
+     * equivalents, other paint implementations are not handled.  The 
+     * converted paints are cached, so reusing the same paints (or the same
+     * texture image) is inexpensive.
      * 
      * @param paint  the paint ({@code null} is permitted but ignored).
      * 
@@ -348,94 +549,657 @@ public class FXGraphics2D extends Graphics2D {
      */
     @Override
     public void setPaint(Paint paint) {
-        if (paint == null) {
+        if (paint == null || paint == this.paint) {
+            return;
+        }
+        if (paint instanceof Color) {
+            if (!paint.equals(this.paint)) {
+                applyColor((Color) paint);
+            }
+            return;
+        }
+        if (GradientCache.isSupported(paint)) {
+            // compare fingerprints rather than the paints themselves, since 
+            // the gradient paint classes do not override equals()
+            GradientCache.Key key = this.spareGradientKey;
+            if (key == null) {
+                key = new GradientCache.Key();
+            }
+            if (key.getSource() != paint) {
+                // the gradient paints are immutable, so a key that was set
+                // from the same instance is still valid
+                key.set(paint);
+            }
+            if (this.gradientKey != null && key.equals(this.gradientKey)) {
+                // the JavaFX equivalent is unchanged
+                this.paint = paint;
+                this.spareGradientKey = key;
+                return;
+            }
+            this.spareGradientKey = this.gradientKey;
+            this.gradientKey = key;
+            this.paint = paint;
+            paintChanged();
             return;
         }
         if (paintsAreEqual(paint, this.paint)) {
             return;
         }
-        applyPaint(paint);
+        this.paint = paint;
+        clearGradientKey();
+        paintChanged();
     }
 
-    private CycleMethod toJavaFXCycleMethod(MultipleGradientPaint.CycleMethod method) {
-        switch (method) {
-            case NO_CYCLE:
-                return CycleMethod.NO_CYCLE;
-            case REFLECT:
-                return CycleMethod.REFLECT;
-            case REPEAT:
-                return CycleMethod.REPEAT;
-            default:
-                throw new IllegalStateException("Unknown cycle method " + method);
+    /**
+     * Records that the paint has changed, so the JavaFX paint must be 
+     * resolved again and pushed to the graphics context before the next 
+     * drawing operation.
+     */
+    private void paintChanged() {
+        this.gcHandler.newPixelGeneration();
+        this.fxPaint = null;
+        this.fxPaintResolved = false;
+        this.dirtyState |= FILL_PAINT | STROKE_PAINT;
+    }
+
+    /**
+     * Records that the current paint is not a gradient.
+     */
+    private void clearGradientKey() {
+        if (this.gradientKey != null) {
+            this.spareGradientKey = this.gradientKey;
+            this.gradientKey = null;
         }
     }
 
-    private void applyPaint(Paint paint) {
-        this.paint = paint;
-        if (paint instanceof Color) {
-            setColor((Color) paint);
-        } else if (paint instanceof GradientPaint) {
-            GradientPaint gp = (GradientPaint) paint;
-            Stop[] stops = new Stop[] {
-                    new Stop(0, awtColorToJavaFX(gp.getColor1())),
-                    new Stop(1, awtColorToJavaFX(gp.getColor2()))
-            };
-            Point2D p1 = gp.getPoint1();
-            Point2D p2 = gp.getPoint2();
-            CycleMethod cm = gp.isCyclic() ? CycleMethod.REFLECT : CycleMethod.NO_CYCLE;
-            LinearGradient lg = new LinearGradient(p1.getX(), p1.getY(),
-                    p2.getX(), p2.getY(), false, cm, stops);
-            this.gc.setStroke(lg);
-            this.gc.setFill(lg);
-        } else if (paint instanceof MultipleGradientPaint) {
-            MultipleGradientPaint mgp = (MultipleGradientPaint) paint;
-            Color[] colors = mgp.getColors();
-            float[] fractions = mgp.getFractions();
-            Stop[] stops = new Stop[colors.length];
-            for (int i = 0; i < colors.length; i++) {
-                stops[i] = new Stop(fractions[i], awtColorToJavaFX(colors[i]));
+    /**
+     * Returns the JavaFX paint that is equivalent to the current paint.
+     * 
+     * @return The JavaFX paint ({@code null} if the current paint is not
+     *     recognised, in which case the graphics context is left as is).
+     */
+    private javafx.scene.paint.Paint fxPaint() {
+        if (!this.fxPaintResolved) {
+            if (this.paint instanceof Color) {
+                this.fxPaint = awtColorToJavaFX((Color) this.paint);
+            } else if (this.gradientKey != null) {
+                this.fxPaint = GradientCache.SHARED.get(this.gradientKey);
+            } else if (this.paint instanceof TexturePaint) {
+                this.fxPaint = TextureCache.SHARED.get(
+                        (TexturePaint) this.paint);
+            } else {
+                // this is a paint we don't recognise
+                this.fxPaint = null;
             }
+            this.fxPaintResolved = true;
+        }
+        return this.fxPaint;
+    }
 
-            if (paint instanceof RadialGradientPaint) {
-                RadialGradientPaint rgp = (RadialGradientPaint) paint;
-                Point2D center = rgp.getCenterPoint();
-                Point2D focus = rgp.getFocusPoint();
-                double focusDistance = focus.distance(center);
-                double focusAngle = 0.0;
-                if (!focus.equals(center)) {
-                    focusAngle = Math.atan2(focus.getY() - center.getY(),
-                            focus.getX() - center.getX());
+    /**
+     * Pushes the specified attributes to the graphics context, where they
+     * have changed since they were last pushed and differ from the values
+     * that the graphics context already holds.  This must be called before
+     * each drawing operation.
+     * 
+     * @param required  the attributes required by the drawing operation 
+     *     (a combination of the bits used for {@code dirtyState}).
+     */
+    private void syncState(int required) {
+        final GCStateHandler h = this.gcHandler;
+        h.drawCount++;
+        h.flush();
+        if (h.owner != this) {
+            // another instance may have changed the graphics context 
+            this.dirtyState = ALL_STATE;
+            h.owner = this;
+        }
+        final int flags = this.dirtyState & required;
+        if (flags == 0) {
+            return;
+        }
+        if ((flags & (FILL_PAINT | STROKE_PAINT)) != 0) {
+            javafx.scene.paint.Paint p = fxPaint();
+            if (p != null) {
+                if ((flags & FILL_PAINT) != 0 && !p.equals(h.fill)) {
+                    this.gc.setFill(p);
+                    h.fill = p;
+                }
+                if ((flags & STROKE_PAINT) != 0 && !p.equals(h.stroke)) {
+                    this.gc.setStroke(p);
+                    h.stroke = p;
                 }
-                double radius = rgp.getRadius();
-                RadialGradient rg = new RadialGradient(
-                        Math.toDegrees(focusAngle), focusDistance / radius,
-                        center.getX(), center.getY(), radius, false,
-                        toJavaFXCycleMethod(rgp.getCycleMethod()), stops);
-                this.gc.setStroke(rg);
-                this.gc.setFill(rg);
-            } else if (paint instanceof LinearGradientPaint) {
-                LinearGradientPaint lgp = (LinearGradientPaint) paint;
-                Point2D start = lgp.getStartPoint();
-                Point2D end = lgp.getEndPoint();
-                LinearGradient lg = new LinearGradient(start.getX(),
-                        start.getY(), end.getX(), end.getY(), false,
-                        toJavaFXCycleMethod(lgp.getCycleMethod()), stops);
-                this.gc.setStroke(lg);
-                this.gc.setFill(lg);
             }
-        } else if (paint instanceof TexturePaint){
-            BufferedImage textureImage = ((TexturePaint) paint).getImage();
-            int width = textureImage.getWidth();
-            int height = textureImage.getHeight();
-            WritableImage image = SwingFXUtils.toFXImage(textureImage, null);
-            ImagePattern imagePattern = new ImagePattern(image,0,0, width, height,false);
-            this.gc.setStroke(imagePattern);
-            this.gc.setFill(imagePattern);
+        }
+        if ((flags & LINE_ATTRIBUTES) != 0 
+                && this.stroke instanceof BasicStroke) {
+            syncLineAttributes(LineAttributes.of((BasicStroke) this.stroke, 
+                    this.zeroStrokeWidth));
+        }
+        if ((flags & FONT) != 0) {
+            javafx.scene.text.Font fxFont = FontCache.SHARED.get(this.font);
+            if (fxFont != h.font) {
+                this.gc.setFont(fxFont);
+                h.font = fxFont;
+            }
+        }
+        if ((flags & COMPOSITE) != 0 
+                && this.composite instanceof AlphaComposite) {
+            AlphaComposite ac = (AlphaComposite) this.composite;
+            double alpha = ac.getAlpha();
+            if (alpha != h.globalAlpha) {
+                this.gc.setGlobalAlpha(alpha);
+                h.globalAlpha = alpha;
+            }
+            BlendMode mode = blendMode(ac.getRule());
+            if (mode != h.blendMode) {
+                this.gc.setGlobalBlendMode(mode);
+                h.blendMode = mode;
+            }
+        }
+        this.dirtyState &= ~flags;
+    }
+
+    /**
+     * Returns the number of drawing operations that have been skipped 
+     * because they would not be visible (see 
+     * {@link FXHints#KEY_CULL_INVISIBLE}).  The count includes operations
+     * on all instances created from the same original instance via 
+     * {@link #create()}.
+     * 
+     * @return The number of skipped operations.
+     * 
+     * @since 2.1.6
+     */
+    public long getCulledCount() {
+        return this.gcHandler.culledCount;
+    }
+
+    /**
+     * Draws a rectangle or ellipse as a single device pixel if its size in
+     * device space (including the padding for the stroke) is below the 
+     * level-of-detail threshold.
+     * 
+     * @param x  the x-coordinate (user space).
+     * @param y  the y-coordinate (user space).
+     * @param w  the width (user space).
+     * @param h  the height (user space).
+     * @param padding  the padding for the stroke (user space).
+     * 
+     * @return {@code true} if the primitive was handled (drawn as a pixel, 
+     *     or skipped because the pixel is already drawn).
+     */
+    private boolean drawLevelOfDetail(double x, double y, double w, 
+            double h, double padding) {
+        final AffineTransform t = this.transform;
+        final double m00 = t.getScaleX();
+        final double m01 = t.getShearX();
+        final double m10 = t.getShearY();
+        final double m11 = t.getScaleY();
+        final double pw = w + 2.0 * padding;
+        final double ph = h + 2.0 * padding;
+        if (Math.abs(m00) * pw + Math.abs(m01) * ph >= this.lodThreshold
+                || Math.abs(m10) * pw + Math.abs(m11) * ph 
+                        >= this.lodThreshold) {
+            return false;
+        }
+        final double cx = x + w / 2.0;
+        final double cy = y + h / 2.0;
+        if (m01 != 0.0 || m10 != 0.0 || m00 == 0.0 || m11 == 0.0) {
+            // a rotated pixel at the center, in user space
+            final double sx = Math.hypot(m00, m10);
+            final double sy = Math.hypot(m01, m11);
+            if (sx == 0.0 || sy == 0.0) {
+                // a singular transform, nothing would be visible
+                return true;
+            }
+            syncState(FILL_STATE);
+            this.gc.fillRect(cx - 0.5 / sx, cy - 0.5 / sy, 1.0 / sx, 1.0 / sy);
+            return true;
+        }
+        // find the device pixel that contains the center
+        final double px = Math.floor(m00 * cx + t.getTranslateX());
+        final double py = Math.floor(m11 * cy + t.getTranslateY());
+        if (isOpaqueColor()) {
+            final Canvas canvas = this.gc.getCanvas();
+            final int cw = (int) Math.ceil(canvas.getWidth());
+            final int ch = (int) Math.ceil(canvas.getHeight());
+            if (px >= 0 && py >= 0 && px < cw && py < ch) {
+                if (this.gcHandler.owner != this) {
+                    // the paint of the last pixel may differ
+                    this.gcHandler.newPixelGeneration();
+                }
+                if (this.gcHandler.stampPixel((int) px, (int) py, cw, ch)) {
+                    this.gcHandler.culledCount++;
+                    return true;
+                }
+            }
+        }
+        // the device pixel, mapped back to user space
+        final double ux0 = (px - t.getTranslateX()) / m00;
+        final double ux1 = (px + 1.0 - t.getTranslateX()) / m00;
+        final double uy0 = (py - t.getTranslateY()) / m11;
+        final double uy1 = (py + 1.0 - t.getTranslateY()) / m11;
+        syncState(FILL_STATE);
+        this.gc.fillRect(Math.min(ux0, ux1), Math.min(uy0, uy1), 
+                Math.abs(ux1 - ux0), Math.abs(uy1 - uy0));
+        this.gcHandler.pixelDrawCount = this.gcHandler.drawCount;
+        return true;
+    }
+
+    /**
+     * Returns {@code true} if the current paint is an opaque color and the
+     * composite does not blend, so that drawing the same pixel twice gives
+     * the same result as drawing it once.
+     * 
+     * @return A boolean. 
+     */
+    private boolean isOpaqueColor() {
+        if (!(this.paint instanceof Color) 
+                || ((Color) this.paint).getAlpha() != 255) {
+            return false;
+        }
+        if (!(this.composite instanceof AlphaComposite)) {
+            return false;
+        }
+        AlphaComposite ac = (AlphaComposite) this.composite;
+        return ac.getRule() == AlphaComposite.SRC_OVER 
+                && ac.getAlpha() == 1.0f;
+    }
+
+    /**
+     * Starts a new path in the graphics context, after drawing any batched
+     * primitives (which would otherwise be lost).
+     */
+    private void beginPath() {
+        this.gcHandler.flush();
+        this.gc.beginPath();
+    }
+
+    /**
+     * Adds a line segment to the batch in the state handler (see 
+     * {@link FXHints#KEY_BATCH_LINES}).  If the batch belongs to another
+     * instance, or the stroke state has changed, the batch is flushed 
+     * first.
+     * 
+     * @param x1  the x-coordinate of the start point.
+     * @param y1  the y-coordinate of the start point.
+     * @param x2  the x-coordinate of the end point.
+     * @param y2  the y-coordinate of the end point.
+     */
+    private void batchLine(double x1, double y1, double x2, double y2) {
+        final GCStateHandler h = this.gcHandler;
+        if (h.lineCount == 0 || h.owner != this 
+                || (this.dirtyState & STROKE_STATE) != 0) {
+            syncState(STROKE_STATE);
+        } else {
+            h.drawCount++;
+        }
+        h.addLine(x1, y1, x2, y2);
+    }
+
+    /**
+     * Adds a rectangle to the batch in the state handler (see 
+     * {@link FXHints#KEY_BATCH_RECTS}).  If the batch belongs to another
+     * instance, or the fill state has changed, the batch is flushed first.
+     * 
+     * @param x  the x-coordinate.
+     * @param y  the y-coordinate.
+     * @param w  the width.
+     * @param h  the height.
+     */
+    private void batchRect(double x, double y, double w, double h) {
+        final GCStateHandler handler = this.gcHandler;
+        if (handler.rectCount == 0 || handler.owner != this 
+                || (this.dirtyState & FILL_STATE) != 0) {
+            syncState(FILL_STATE);
+            // overlapping rectangles must not cancel each other out
+            syncFillRule(FillRule.NON_ZERO);
+        } else {
+            handler.drawCount++;
+        }
+        handler.addRect(x, y, w, h);
+    }
+
+    /**
+     * Draws any line segments or rectangles that are held in a batch (see 
+     * {@link FXHints#KEY_BATCH_LINES} and {@link FXHints#KEY_BATCH_RECTS}) 
+     * to the graphics context.  The batch
+     * is flushed automatically by the next drawing operation, by changes
+     * to the transform or clip and by {@link #dispose()}, but when 
+     * batching is enabled this method should be called after the last
+     * drawing operation and before drawing to the graphics context 
+     * directly.
+     * 
+     * @since 2.1.6
+     */
+    public void flush() {
+        this.gcHandler.flush();
+    }
+
+    /**
+     * Returns {@code true} if the current composite is fully transparent
+     * (so that nothing drawn will be visible).
+     * 
+     * @return A boolean. 
+     */
+    private boolean isCompositeTransparent() {
+        if (this.composite instanceof AlphaComposite) {
+            AlphaComposite ac = (AlphaComposite) this.composite;
+            return ac.getRule() == AlphaComposite.SRC_OVER 
+                    && ac.getAlpha() == 0.0f;
+        }
+        return false;
+    }
+
+    /**
+     * Returns {@code true} if the current paint or composite is fully 
+     * transparent (so that nothing drawn will be visible).
+     * 
+     * @return A boolean. 
+     */
+    private boolean isTransparent() {
+        if (isCompositeTransparent()) {
+            return true;
+        }
+        return this.paint instanceof Color 
+                && ((Color) this.paint).getAlpha() == 0
+                && (!(this.composite instanceof AlphaComposite) 
+                || ((AlphaComposite) this.composite).getRule() 
+                        == AlphaComposite.SRC_OVER);
+    }
+
+    /**
+     * Returns the distance (in user space) that the outline of a shape 
+     * drawn with the current stroke can extend beyond the shape bounds.  
+     * This must only be called when the stroke is a {@code BasicStroke}.
+     * 
+     * @return The padding.
+     */
+    private double strokePadding() {
+        BasicStroke bs = (BasicStroke) this.stroke;
+        double w = bs.getLineWidth();
+        if (w == 0.0) {
+            w = this.zeroStrokeWidth;
+        }
+        // square caps extend by sqrt(2) * w / 2 at the corners, and miter 
+        // joins by up to miterLimit * w / 2
+        double factor = Math.sqrt(2.0);
+        if (bs.getLineJoin() == BasicStroke.JOIN_MITER) {
+            factor = Math.max(factor, bs.getMiterLimit());
+        }
+        return w / 2.0 * factor;
+    }
+
+    /**
+     * Returns {@code true} if the specified bounds (in user space) are 
+     * outside the visible area (the canvas and the clip).
+     * 
+     * @param bounds  the bounds ({@code null} not permitted).
+     * @param padding  the padding to add to the bounds (in user space).
+     * 
+     * @return A boolean.
+     */
+    private boolean isCulled(Rectangle2D bounds, double padding) {
+        return isCulled(bounds.getX(), bounds.getY(), bounds.getWidth(), 
+                bounds.getHeight(), padding);
+    }
+
+    /**
+     * Returns the bounds in device space of the specified rectangle (in 
+     * user space) after applying the current transform.  The result is 
+     * written to a buffer (as minX, minY, maxX, maxY) that is overwritten by
+     * the next call.
+     * 
+     * @param x  the x-coordinate.
+     * @param y  the y-coordinate.
+     * @param w  the width.
+     * @param h  the height.
+     * @param padding  the padding to add to the rectangle (in user space).
+     * 
+     * @return The buffer containing the bounds.
+     */
+    private double[] deviceBounds(double x, double y, double w, double h, 
+            double padding) {
+        final AffineTransform t = this.transform;
+        final double x0 = x - padding;
+        final double y0 = y - padding;
+        final double x1 = x + w + padding;
+        final double y1 = y + h + padding;
+        final double m00 = t.getScaleX();
+        final double m01 = t.getShearX();
+        final double m10 = t.getShearY();
+        final double m11 = t.getScaleY();
+        final double[] b = this.boundsBuffer;
+        b[0] = t.getTranslateX() + Math.min(m00 * x0, m00 * x1)
+                + Math.min(m01 * y0, m01 * y1);
+        b[1] = t.getTranslateY() + Math.min(m10 * x0, m10 * x1)
+                + Math.min(m11 * y0, m11 * y1);
+        b[2] = t.getTranslateX() + Math.max(m00 * x0, m00 * x1)
+                + Math.max(m01 * y0, m01 * y1);
+        b[3] = t.getTranslateY() + Math.max(m10 * x0, m10 * x1)
+                + Math.max(m11 * y0, m11 * y1);
+        return b;
+    }
+
+    /**
+     * Returns the visible area in device space (the canvas, intersected 
+     * with the bounds of the clip if there is one).  The result is written
+     * to a buffer (as minX, minY, maxX, maxY) that is overwritten by the 
+     * next call.
+     * 
+     * @return The buffer containing the bounds.
+     */
+    private double[] visibleBounds() {
+        final Canvas canvas = this.gc.getCanvas();
+        final double[] v = this.visibleBuffer;
+        v[0] = 0.0;
+        v[1] = 0.0;
+        v[2] = canvas.getWidth();
+        v[3] = canvas.getHeight();
+        if (this.clip != null) {
+            if (this.deviceClipBounds == null) {
+                this.deviceClipBounds = this.clip.getBounds2D();
+            }
+            final Rectangle2D cb = this.deviceClipBounds;
+            v[0] = Math.max(v[0], cb.getMinX());
+            v[1] = Math.max(v[1], cb.getMinY());
+            v[2] = Math.min(v[2], cb.getMaxX());
+            v[3] = Math.min(v[3], cb.getMaxY());
+        }
+        return v;
+    }
+
+    /**
+     * Adds an entry for the current pick id (see 
+     * {@link FXHints#KEY_PICK_ID}) to the pick index, if recording is 
+     * enabled.  The bounds are clipped to the visible area, so that a 
+     * very large shape does not stretch the index, and nothing is added 
+     * if no part of the bounds is visible.
+     * 
+     * @param x  the x-coordinate of the bounds (in user space).
+     * @param y  the y-coordinate of the bounds (in user space).
+     * @param w  the width of the bounds.
+     * @param h  the height of the bounds.
+     * @param padding  the padding to add to the bounds (in user space).
+     */
+    private void recordPick(double x, double y, double w, double h, 
+            double padding) {
+        if (this.pickIndex == null || this.pickId == null) {
+            return;
+        }
+        final double[] b = deviceBounds(x, y, w, h, padding);
+        final double[] v = visibleBounds();
+        final double minX = Math.max(b[0], v[0]);
+        final double minY = Math.max(b[1], v[1]);
+        final double maxX = Math.min(b[2], v[2]);
+        final double maxY = Math.min(b[3], v[3]);
+        if (maxX < minX || maxY < minY) {
+            return;
+        }
+        this.pickIndex.add(this.pickId, minX, minY, maxX - minX, 
+                maxY - minY);
+    }
+
+    /**
+     * Adds an entry for the current pick id (see 
+     * {@link FXHints#KEY_PICK_ID}) to the pick index, if recording is 
+     * enabled.
+     * 
+     * @param bounds  the bounds (in user space).
+     * @param padding  the padding to add to the bounds (in user space).
+     */
+    private void recordPick(Rectangle2D bounds, double padding) {
+        recordPick(bounds.getX(), bounds.getY(), bounds.getWidth(), 
+                bounds.getHeight(), padding);
+    }
+
+    /**
+     * Returns {@code true} if a polyline or polygon would not be visible 
+     * (see {@link FXHints#KEY_CULL_INVISIBLE}), counting it as culled.  
+     * Otherwise an entry is added to the pick index if recording is 
+     * enabled.  The bounds of the points are computed once, and only if 
+     * culling or recording needs them.
+     * 
+     * @param xPoints  the x-coordinates.
+     * @param yPoints  the y-coordinates.
+     * @param nPoints  the number of points (at least one).
+     * @param padding  the padding to add to the bounds (in user space).
+     * 
+     * @return A boolean.
+     */
+    private boolean isPolyCulled(double[] xPoints, double[] yPoints, 
+            int nPoints, double padding) {
+        if (this.cullInvisible && isTransparent()) {
+            this.gcHandler.culledCount++;
+            return true;
+        }
+        if (!this.cullInvisible && this.pickId == null) {
+            return false;
+        }
+        double minX = xPoints[0];
+        double minY = yPoints[0];
+        double maxX = minX;
+        double maxY = minY;
+        for (int i = 1; i < nPoints; i++) {
+            minX = Math.min(minX, xPoints[i]);
+            minY = Math.min(minY, yPoints[i]);
+            maxX = Math.max(maxX, xPoints[i]);
+            maxY = Math.max(maxY, yPoints[i]);
+        }
+        if (this.cullInvisible && isCulled(minX, minY, maxX - minX, 
+                maxY - minY, padding)) {
+            this.gcHandler.culledCount++;
+            return true;
+        }
+        if (this.pickId != null) {
+            recordPick(minX, minY, maxX - minX, maxY - minY, padding);
+        }
+        return false;
+    }
+
+    /**
+     * Returns {@code true} if the specified rectangle (in user space) is 
+     * outside the visible area (the canvas and the clip).  The test uses 
+     * the device space bounds of the transformed rectangle, with a margin
+     * of one pixel for antialiasing, so it is conservative.
+     * 
+     * @param x  the x-coordinate.
+     * @param y  the y-coordinate.
+     * @param w  the width.
+     * @param h  the height.
+     * @param padding  the padding to add to the rectangle (in user space).
+     * 
+     * @return A boolean.
+     */
+    private boolean isCulled(double x, double y, double w, double h, 
+            double padding) {
+        final double[] b = deviceBounds(x, y, w, h, padding);
+        final double minX = b[0] - 1.0;
+        final double minY = b[1] - 1.0;
+        final double maxX = b[2] + 1.0;
+        final double maxY = b[3] + 1.0;
+        final double[] v = visibleBounds();
+        return maxX < v[0] || minX > v[2] || maxY < v[1] || minY > v[3];
+    }
+
+    /**
+     * Pushes the line attributes that differ from those in the graphics 
+     * context.
+     * 
+     * @param la  the line attributes ({@code null} not permitted).
+     */
+    private void syncLineAttributes(LineAttributes la) {
+        final LineAttributes current = this.gcHandler.lineAttributes;
+        if (la == current) {
+            return;
+        }
+        if (current == null || la.lineWidth != current.lineWidth) {
+            this.gc.setLineWidth(la.lineWidth);
+        }
+        if (current == null || la.lineCap != current.lineCap) {
+            this.gc.setLineCap(la.lineCap);
+        }
+        if (current == null || la.lineJoin != current.lineJoin) {
+            this.gc.setLineJoin(la.lineJoin);
+        }
+        if (current == null || la.miterLimit != current.miterLimit) {
+            this.gc.setMiterLimit(la.miterLimit);
+        }
+        if (current == null || !la.hasSameDashes(current)) {
+            this.gc.setLineDashes(la.dashes);
+        }
+        if (current == null || la.dashOffset != current.dashOffset) {
+            this.gc.setLineDashOffset(la.dashOffset);
+        }
+        this.gcHandler.lineAttributes = la;
+    }
+
+    /**
+     * Synchronizes the attributes required to fill a shape with the 
+     * specified bounds.  If proportional gradients are enabled (see 
+     * {@link FXHints#KEY_PROPORTIONAL_GRADIENTS}) and the current paint is a
+     * linear gradient, the fill is set to an equivalent proportional 
+     * gradient, which is then shared by all shapes where the gradient has 
+     * the same geometry relative to the shape bounds.
+     * 
+     * @param x  the x-coordinate of the shape bounds.
+     * @param y  the y-coordinate of the shape bounds.
+     * @param w  the width of the shape bounds.
+     * @param h  the height of the shape bounds.
+     */
+    private void syncFillState(double x, double y, double w, double h) {
+        if (isProportionalGradient()) {
+            syncState(COMPOSITE);
+            if (this.proportionalKey == null) {
+                this.proportionalKey = new GradientCache.Key();
+            }
+            this.proportionalKey.setProportional(this.gradientKey, x, y, w, h);
+            javafx.scene.paint.Paint p = GradientCache.SHARED.get(
+                    this.proportionalKey);
+            if (!p.equals(this.gcHandler.fill)) {
+                this.gc.setFill(p);
+                this.gcHandler.fill = p;
+            }
+            // the fill no longer matches the current paint
+            this.dirtyState |= FILL_PAINT;
         } else {
-            // this is a paint we don't recognise
+            syncState(FILL_STATE);
         }
     }
 
+    /**
+     * Returns {@code true} if shapes are filled with a proportional 
+     * gradient derived from the current paint (see 
+     * {@link #syncFillState(double, double, double, double)}).
+     * 
+     * @return A boolean.
+     */
+    private boolean isProportionalGradient() {
+        return this.proportionalGradients && this.gradientKey != null 
+                && this.gradientKey.isLinear();
+    }
+
     /**
      * Returns the foreground color.  This method exists for backwards
      * compatibility in AWT, you should use the {@link #getPaint()} method.
@@ -463,7 +1227,7 @@ public class FXGraphics2D extends Graphics2D {
      */
     @Override
     public void setColor(Color c) {
-        if (c == null || c.equals(this.color)) {
+        if (c == null || c.equals(this.paint)) {
             return;
         }
         applyColor(c);
@@ -472,21 +1236,21 @@ public class FXGraphics2D extends Graphics2D {
     private void applyColor(Color c) {
         this.color = c;
         this.paint = c;
-        javafx.scene.paint.Color fxcolor = awtColorToJavaFX(c);
-        this.gc.setFill(fxcolor);
-        this.gc.setStroke(fxcolor);
+        clearGradientKey();
+        paintChanged();
     }
 
     /**
      * Returns a JavaFX color that is equivalent to the specified AWT color.
-     * 
+     * The result comes from a cache that is shared by all instances, so
+     * switching between a small set of colors does not create new objects.
+     *
      * @param c  the color ({@code null} not permitted).
-     * 
-     * @return A JavaFX color. 
+     *
+     * @return A JavaFX color.
      */
     private javafx.scene.paint.Color awtColorToJavaFX(Color c) {
-        return javafx.scene.paint.Color.rgb(c.getRed(), c.getGreen(),
-                c.getBlue(), c.getAlpha() / 255.0);
+        return ColorCache.SHARED.get(c);
     }
 
     /**
@@ -544,11 +1308,7 @@ public class FXGraphics2D extends Graphics2D {
     public void setComposite(Composite comp) {
         nullNotPermitted(comp, "comp");
         this.composite = comp;
-        if (comp instanceof AlphaComposite) {
-            AlphaComposite ac = (AlphaComposite) comp;
-            this.gc.setGlobalAlpha(ac.getAlpha());
-            this.gc.setGlobalBlendMode(blendMode(ac.getRule()));
-        }
+        this.dirtyState |= COMPOSITE;
     }
 
     /**
@@ -601,89 +1361,11 @@ public class FXGraphics2D extends Graphics2D {
     @Override
     public void setStroke(Stroke s) {
         nullNotPermitted(s, "s");
-        if (s == this.stroke) { // quick test, full equals test later
+        if (s == this.stroke || s.equals(this.stroke)) {
             return;
         }
-        if (stroke instanceof BasicStroke) {
-            BasicStroke bs = (BasicStroke) s;
-            if (bs.equals(this.stroke)) {
-                return; // no change
-            }
-        }
         this.stroke = s;
-        applyStroke(s);
-    }
-
-    private void applyStroke(Stroke s) {
-        if (s instanceof BasicStroke) {
-            applyBasicStroke((BasicStroke) s);
-        }
-    }
-
-    private void applyBasicStroke(BasicStroke bs) {
-        double lineWidth = bs.getLineWidth();
-        if (lineWidth == 0.0) {
-            lineWidth = this.zeroStrokeWidth;
-        }
-        this.gc.setLineWidth(lineWidth);
-        this.gc.setLineCap(awtToJavaFXLineCap(bs.getEndCap()));
-        this.gc.setLineJoin(awtToJavaFXLineJoin(bs.getLineJoin()));
-        this.gc.setMiterLimit(bs.getMiterLimit());
-        this.gc.setLineDashes(floatToDoubleArray(bs.getDashArray()));
-        this.gc.setLineDashOffset(bs.getDashPhase());
-    }
-
-    /**
-     * Maps a line cap code from AWT to the corresponding JavaFX StrokeLineCap
-     * enum value.
-     * 
-     * @param cap  the line cap code.
-     * 
-     * @return A JavaFX line cap value. 
-     */
-    private StrokeLineCap awtToJavaFXLineCap(int cap) {
-        switch (cap) {
-            case BasicStroke.CAP_BUTT:
-                return StrokeLineCap.BUTT;
-            case BasicStroke.CAP_ROUND:
-                return StrokeLineCap.ROUND;
-            case BasicStroke.CAP_SQUARE:
-                return StrokeLineCap.SQUARE;
-            default:
-                throw new IllegalArgumentException("Unrecognised cap code: " + cap);
-        }
-    }
-
-    /**
-     * Maps a line join code from AWT to the corresponding JavaFX 
-     * StrokeLineJoin enum value.
-     * 
-     * @param join  the line join code.
-     * 
-     * @return A JavaFX line join value. 
-     */
-    private StrokeLineJoin awtToJavaFXLineJoin(int join) {
-        switch (join) {
-            case BasicStroke.JOIN_BEVEL:
-                return StrokeLineJoin.BEVEL;
-            case BasicStroke.JOIN_MITER:
-                return StrokeLineJoin.MITER;
-            case BasicStroke.JOIN_ROUND:
-                return StrokeLineJoin.ROUND;
-            default:
-                throw new IllegalArgumentException("Unrecognised join code: " + join);
-        }
-    }
-
-    private double[] floatToDoubleArray(float[] f) {
-        if (f == null) {
-            return null;
-        }
-        double[] d = new double[f.length];
-        for (int i = 0; i < f.length; i++) {
-            d[i] = f[i];
-        }
-        return d;
+        this.dirtyState |= LINE_ATTRIBUTES;
     }
 
     /**
@@ -714,6 +1396,7 @@ public class FXGraphics2D extends Graphics2D {
     @Override
     public void setRenderingHint(RenderingHints.Key hintKey, Object hintValue) {
         this.hints.put(hintKey, hintValue);
+        hintsChanged();
     }
 
     /**
@@ -741,6 +1424,7 @@ public class FXGraphics2D extends Graphics2D {
     public void setRenderingHints(Map<?, ?> hints) {
         this.hints.clear();
         this.hints.putAll(hints);
+        hintsChanged();
     }
 
     /**
@@ -751,6 +1435,34 @@ public class FXGraphics2D extends Graphics2D {
     @Override
     public void addRenderingHints(Map<?, ?> hints) {
         this.hints.putAll(hints);
+        hintsChanged();
+    }
+
+    /**
+     * Updates the fields that cache hint values, so that the hints do not 
+     * need to be looked up for every drawing operation.
+     */
+    private void hintsChanged() {
+        this.proportionalGradients = Boolean.TRUE.equals(
+                this.hints.get(FXHints.KEY_PROPORTIONAL_GRADIENTS));
+        this.cacheStrokedShapes = Boolean.TRUE.equals(
+                this.hints.get(FXHints.KEY_CACHE_STROKED_SHAPES));
+        this.cacheTextSprites = Boolean.TRUE.equals(
+                this.hints.get(FXHints.KEY_CACHE_TEXT_SPRITES));
+        Object version = this.hints.get(FXHints.KEY_CACHE_SHAPE_PATHS);
+        this.shapePathVersion = version instanceof Boolean ? null : version;
+        this.decimateLines = Boolean.TRUE.equals(
+                this.hints.get(FXHints.KEY_DECIMATE_LINES));
+        this.cullInvisible = Boolean.TRUE.equals(
+                this.hints.get(FXHints.KEY_CULL_INVISIBLE));
+        Object lod = this.hints.get(FXHints.KEY_LOD_THRESHOLD);
+        this.lodThreshold = lod instanceof Number 
+                ? ((Number) lod).doubleValue() : 0.0;
+        this.batchLines = Boolean.TRUE.equals(
+                this.hints.get(FXHints.KEY_BATCH_LINES));
+        this.batchRects = Boolean.TRUE.equals(
+                this.hints.get(FXHints.KEY_BATCH_RECTS));
+        this.pickId = this.hints.get(FXHints.KEY_PICK_ID);
     }
 
     /**
@@ -766,10 +1478,53 @@ public class FXGraphics2D extends Graphics2D {
      */
     @Override
     public void draw(Shape s) {
+        // the bounds are computed at most once (for culling and picking)
+        Rectangle2D bounds = null;
+        if (this.cullInvisible) {
+            if (this.stroke instanceof BasicStroke) {
+                bounds = s.getBounds2D();
+            }
+            if (isTransparent() || (bounds != null 
+                    && isCulled(bounds, strokePadding()))) {
+                this.gcHandler.culledCount++;
+                return;
+            }
+        }
+        if (this.pickId != null && this.stroke instanceof BasicStroke) {
+            if (bounds == null) {
+                bounds = s.getBounds2D();
+            }
+            recordPick(bounds, strokePadding());
+        }
+        if (this.lodThreshold > 0.0 && this.stroke instanceof BasicStroke
+                && (s instanceof Rectangle2D || s instanceof Ellipse2D)) {
+            final RectangularShape r = (RectangularShape) s;
+            double w = ((BasicStroke) this.stroke).getLineWidth();
+            if (w == 0.0) {
+                w = this.zeroStrokeWidth;
+            }
+            if (r.getWidth() >= 0.0 && r.getHeight() >= 0.0 
+                    && drawLevelOfDetail(r.getX(), r.getY(), r.getWidth(), 
+                    r.getHeight(), w / 2.0)) {
+                return;
+            }
+        }
         // if the current stroke is not a BasicStroke then it is handled as
         // a special case
         if (!(this.stroke instanceof BasicStroke)) {
-            fill(this.stroke.createStrokedShape(s));
+            if (this.cacheStrokedShapes) {
+                if (this.strokedShapeKey == null) {
+                    this.strokedShapeKey = new PackedPath();
+                }
+                PackedPath stroked = StrokedShapeCache.SHARED.get(
+                        this.stroke, s, this.strokedShapeKey);
+                if (this.pickId != null) {
+                    recordPick(stroked.getBounds(), 0.0);
+                }
+                fillPath(stroked);
+            } else {
+                fill(this.stroke.createStrokedShape(s));
+            }
             return;
         }
         if (s instanceof Line2D) {
@@ -782,6 +1537,11 @@ public class FXGraphics2D extends Graphics2D {
                 double y2 = Math.rint(l.getY2()) - 0.5;
                 l = line(x1, y1, x2, y2);
             }
+            if (this.batchLines) {
+                batchLine(l.getX1(), l.getY1(), l.getX2(), l.getY2());
+                return;
+            }
+            syncState(STROKE_STATE);
             this.gc.strokeLine(l.getX1(), l.getY1(), l.getX2(), l.getY2());
         } else if (s instanceof Rectangle2D) {
             Rectangle2D r = (Rectangle2D) s;
@@ -799,12 +1559,14 @@ public class FXGraphics2D extends Graphics2D {
                 double h = Math.floor(r.getHeight());
                 r = rect(x, y, w, h);
             }
+            syncState(STROKE_STATE);
             this.gc.strokeRect(r.getX(), r.getY(), r.getWidth(), r.getHeight());
         } else if (s instanceof RoundRectangle2D) {
             final RoundRectangle2D rr = (RoundRectangle2D) s;
             if (rr.getWidth() < 0.0 || rr.getHeight() < 0.0) {
                 return;
             }
+            syncState(STROKE_STATE);
             this.gc.strokeRoundRect(rr.getX(), rr.getY(), rr.getWidth(),
                     rr.getHeight(), rr.getArcWidth(), rr.getArcHeight());
         } else if (s instanceof Ellipse2D) {
@@ -812,37 +1574,114 @@ public class FXGraphics2D extends Graphics2D {
             if (e.getWidth() < 0.0 || e.getHeight() < 0.0) {
                 return;
             }
+            syncState(STROKE_STATE);
             this.gc.strokeOval(e.getX(), e.getY(), e.getWidth(), e.getHeight());
         } else if (s instanceof Arc2D) {
             final Arc2D a = (Arc2D) s;
+            syncState(STROKE_STATE);
             this.gc.strokeArc(a.getX(), a.getY(), a.getWidth(), a.getHeight(),
                     a.getAngleStart(), a.getAngleExtent(),
                     intToArcType(a.getArcType()));
         } else {
-            shapeToPath(s);
+            if (lineDecimator() != null && drawDecimated(s)) {
+                return;
+            }
+            emitPath(s);
+            syncState(STROKE_STATE);
             this.gc.stroke();
         }
     }
 
+    /**
+     * Returns the line decimator if lines should be decimated with the 
+     * current hints and stroke, otherwise {@code null}.
+     * 
+     * @return The line decimator (possibly {@code null}). 
+     */
+    private LineDecimator lineDecimator() {
+        if (!this.decimateLines || !(this.stroke instanceof BasicStroke)
+                || ((BasicStroke) this.stroke).getDashArray() != null) {
+            return null;
+        }
+        if (this.lineDecimator == null) {
+            this.lineDecimator = new LineDecimator();
+        }
+        return this.lineDecimator;
+    }
+
+    /**
+     * Draws a shape after decimating it, if it contains only straight line
+     * segments.
+     * 
+     * @param s  the shape ({@code null} not permitted).
+     * 
+     * @return {@code false} if the shape contains curves (in which case 
+     *     nothing is drawn).
+     */
+    private boolean drawDecimated(Shape s) {
+        final LineDecimator d = this.lineDecimator;
+        if (!d.decimate(s.getPathIterator(null), this.transform)) {
+            return false;
+        }
+        beginPath();
+        for (int k = 0; k < d.subpathCount; k++) {
+            final int start = d.starts[k];
+            final int end = k + 1 < d.subpathCount ? d.starts[k + 1] : d.count;
+            if (end > start) {
+                this.gc.moveTo(d.xs[start], d.ys[start]);
+                for (int i = start + 1; i < end; i++) {
+                    this.gc.lineTo(d.xs[i], d.ys[i]);
+                }
+                if (d.closed[k]) {
+                    this.gc.closePath();
+                }
+            }
+        }
+        syncState(STROKE_STATE);
+        this.gc.stroke();
+        return true;
+    }
+
+    /**
+     * Maps a shape that is going to be drawn or filled to a path in the 
+     * graphics context, using the path cache for {@code Path2D} instances
+     * if the {@link FXHints#KEY_CACHE_SHAPE_PATHS} hint is set.
+     * 
+     * @param shape  the shape ({@code null} not permitted).
+     * 
+     * @return The fill rule for the path.
+     */
+    private FillRule emitPath(Shape shape) {
+        if (this.shapePathVersion != null && shape instanceof Path2D) {
+            PackedPath path = PathCache.SHARED.get((Path2D) shape, 
+                    this.shapePathVersion);
+            beginPath();
+            path.appendTo(this.gc, 0.0, 0.0);
+            return path.getFillRule();
+        }
+        return shapeToPath(shape);
+    }
+
     private final double[] coords = new double[6];
 
     /**
-     * Maps a shape to a path in the graphics context. 
+     * Maps a shape to a path in the graphics context.  The fill rule is not
+     * applied to the graphics context, it is returned so that the caller can
+     * apply it (via {@link #syncFillRule(FillRule)}) if the path is going to
+     * be filled or used for clipping.
      * 
      * @param shape  the shape ({@code null} not permitted).
+     * 
+     * @return The fill rule for the path.
      */
-    private void shapeToPath(final Shape shape) {
-        if (shape instanceof Path2D) {
-            final Path2D path = (Path2D) shape;
-            if (path.getWindingRule() == Path2D.WIND_EVEN_ODD) {
-                this.gc.setFillRule(FillRule.EVEN_ODD);
-            } else {
-                this.gc.setFillRule(FillRule.NON_ZERO);
-            }
-        }
-        this.gc.beginPath();
+    private FillRule shapeToPath(final Shape shape) {
+        beginPath();
 
-        for (final PathIterator iterator = shape.getPathIterator(null); !iterator.isDone(); iterator.next()) {
+        final PathIterator iterator = shape.getPathIterator(null);
+        final FillRule fillRule = (iterator.getWindingRule() 
+                == PathIterator.WIND_EVEN_ODD) ? FillRule.EVEN_ODD 
+                : FillRule.NON_ZERO;
+        for (; !iterator.isDone(); iterator.next()) {
             final int segType = iterator.currentSegment(coords);
             switch (segType) {
                 case PathIterator.SEG_MOVETO:
@@ -867,6 +1706,33 @@ public class FXGraphics2D extends Graphics2D {
                     throw new RuntimeException("Unrecognised segment type " + segType);
             }
         }
+        return fillRule;
+    }
+
+    /**
+     * Fills a packed path with the current {@code paint}.
+     * 
+     * @param path  the path ({@code null} not permitted).
+     */
+    private void fillPath(PackedPath path) {
+        beginPath();
+        path.appendTo(this.gc, 0.0, 0.0);
+        syncFillRule(path.getFillRule());
+        syncState(FILL_STATE);
+        this.gc.fill();
+    }
+
+    /**
+     * Applies the fill rule to the graphics context, if it differs from the
+     * fill rule that is already in place.
+     * 
+     * @param fillRule  the fill rule ({@code null} not permitted).
+     */
+    private void syncFillRule(FillRule fillRule) {
+        if (fillRule != this.gcHandler.fillRule) {
+            this.gc.setFillRule(fillRule);
+            this.gcHandler.fillRule = fillRule;
+        }
     }
 
     private ArcType intToArcType(int t) {
@@ -895,17 +1761,51 @@ public class FXGraphics2D extends Graphics2D {
      */
     @Override
     public void fill(Shape s) {
+        // the bounds are computed at most once (for culling and picking)
+        Rectangle2D bounds = null;
+        if (this.cullInvisible) {
+            if (isTransparent()) {
+                this.gcHandler.culledCount++;
+                return;
+            }
+            bounds = s.getBounds2D();
+            if (isCulled(bounds, 0.0)) {
+                this.gcHandler.culledCount++;
+                return;
+            }
+        }
+        if (this.pickId != null) {
+            if (bounds == null) {
+                bounds = s.getBounds2D();
+            }
+            recordPick(bounds, 0.0);
+        }
+        if (this.lodThreshold > 0.0 
+                && (s instanceof Rectangle2D || s instanceof Ellipse2D)) {
+            final RectangularShape r = (RectangularShape) s;
+            if (r.getWidth() > 0.0 && r.getHeight() > 0.0 
+                    && drawLevelOfDetail(r.getX(), r.getY(), r.getWidth(), 
+                    r.getHeight(), 0.0)) {
+                return;
+            }
+        }
         if (s instanceof Rectangle2D) {
             final Rectangle2D r = (Rectangle2D) s;
             if (r.getWidth() <= 0.0 || r.getHeight() <= 0.0) {
                 return;
             }
+            if (this.batchRects && !isProportionalGradient()) {
+                batchRect(r.getX(), r.getY(), r.getWidth(), r.getHeight());
+                return;
+            }
+            syncFillState(r.getX(), r.getY(), r.getWidth(), r.getHeight());
             this.gc.fillRect(r.getX(), r.getY(), r.getWidth(), r.getHeight());
         } else if (s instanceof RoundRectangle2D) {
             final RoundRectangle2D rr = (RoundRectangle2D) s;
             if (rr.getWidth() <= 0.0 || rr.getHeight() <= 0.0) {
                 return;
             }
+            syncFillState(rr.getX(), rr.getY(), rr.getWidth(), rr.getHeight());
             this.gc.fillRoundRect(rr.getX(), rr.getY(), rr.getWidth(),
                     rr.getHeight(), rr.getArcWidth(), rr.getArcHeight());
         } else if (s instanceof Ellipse2D) {
@@ -913,14 +1813,17 @@ public class FXGraphics2D extends Graphics2D {
             if (e.getWidth() <= 0.0 || e.getHeight() <= 0.0) {
                 return;
             }
+            syncFillState(e.getX(), e.getY(), e.getWidth(), e.getHeight());
             this.gc.fillOval(e.getX(), e.getY(), e.getWidth(), e.getHeight());
         } else if (s instanceof Arc2D) {
             final Arc2D a = (Arc2D) s;
+            syncState(FILL_STATE);
             this.gc.fillArc(a.getX(), a.getY(), a.getWidth(), a.getHeight(),
                     a.getAngleStart(), a.getAngleExtent(),
                     intToArcType(a.getArcType()));
         } else {
-            shapeToPath(s);
+            syncFillRule(emitPath(s));
+            syncState(FILL_STATE);
             this.gc.fill();
         }
     }
@@ -946,26 +1849,20 @@ public class FXGraphics2D extends Graphics2D {
      */
     @Override
     public void setFont(Font font) {
-        if (font == null || this.font.equals(font)) {
+        if (font == null || font == this.font) {
             return;
         }
-        applyFont(font);
-    }
-
-    private void applyFont(Font font) {
         this.font = font;
-        FontWeight weight = font.isBold() ? FontWeight.BOLD : FontWeight.NORMAL;
-        FontPosture posture = font.isItalic()
-                ? FontPosture.ITALIC : FontPosture.REGULAR;
-        javafx.scene.text.Font jfxfont = javafx.scene.text.Font.font(
-                font.getFamily(), weight, posture, font.getSize());
-        this.gc.setFont(jfxfont);
+        this.dirtyState |= FONT;
     }
 
     /**
-     * Returns the font metrics for the specified font.  The font metrics 
-     * returned are from Java2D (via an internal {@code BufferedImage}) which 
-     * does not always match exactly the font metrics used by JavaFX.
+     * Returns the font metrics for the specified font.  If the 
+     * {@link FXHints#KEY_USE_FX_FONT_METRICS} hint is set, the metrics are 
+     * measured with JavaFX, otherwise the font metrics returned are from 
+     * Java2D (via an internal {@code BufferedImage}) which does not always 
+     * match exactly the font metrics used by JavaFX.  The metrics are shared
+     * by all {@code FXGraphics2D} instances.
      * 
      * @param f  the font.
      * 
@@ -973,24 +1870,8 @@ public class FXGraphics2D extends Graphics2D {
      */
     @Override
     public FontMetrics getFontMetrics(Font f) {
-        if (getRenderingHint(FXHints.KEY_USE_FX_FONT_METRICS) == Boolean.TRUE) {
-            if (this.fxFontMetrics == null
-                    || !f.equals(this.fxFontMetrics.getFont())) {
-                this.fxFontMetrics = new FXFontMetrics(this.font, this);
-            }
-            return this.fxFontMetrics;
-        }
-
-        // be lazy about creating the underlying objects...
-        if (this.fmImage == null) {
-            this.fmImage = new BufferedImage(10, 10,
-                    BufferedImage.TYPE_INT_RGB);
-            this.fmImageG2 = this.fmImage.createGraphics();
-            this.fmImageG2.setRenderingHint(
-                    RenderingHints.KEY_FRACTIONALMETRICS,
-                    RenderingHints.VALUE_FRACTIONALMETRICS_ON);
-        }
-        return this.fmImageG2.getFontMetrics(f);
+        return FontMetricsPool.get(f, getRenderingHint(
+                FXHints.KEY_USE_FX_FONT_METRICS) == Boolean.TRUE);
     }
 
     /**
@@ -1033,9 +1914,78 @@ public class FXGraphics2D extends Graphics2D {
         if (str == null) {
             throw new NullPointerException("Null 'str' argument.");
         }
+        if (this.cullInvisible) {
+            // a conservative estimate of the text bounds (glyph advances 
+            // are rarely more than the font size)
+            final double size = this.font.getSize2D();
+            if (isTransparent() || isCulled(x - size, y - 2.0 * size, 
+                    (str.length() + 2) * 2.0 * size, 3.0 * size, 0.0)) {
+                this.gcHandler.culledCount++;
+                return;
+            }
+        }
+        if (this.pickId != null && this.pickIndex != null) {
+            // JavaFX metrics match the text that is drawn, and fill a 
+            // reusable rectangle
+            FXFontMetrics fm = (FXFontMetrics) FontMetricsPool.get(this.font,
+                    true);
+            Rectangle2D bounds = fm.getTextBounds(str, 0, str.length(), 
+                    this.textBounds);
+            recordPick(x + bounds.getX(), y + bounds.getY(), 
+                    bounds.getWidth(), bounds.getHeight(), 0.0);
+        }
+        if (this.cacheTextSprites && this.paint instanceof Color
+                && Platform.isFxApplicationThread() && isUnitRenderScale()) {
+            TextSpriteCache.Sprite sprite = TextSpriteCache.SHARED.get(str, 
+                    this.font, (Color) this.paint, this.transform);
+            if (sprite != null) {
+                drawSprite(sprite, x, y);
+                return;
+            }
+        }
+        syncState(TEXT_STATE);
         this.gc.fillText(str, x, y);
     }
 
+    /**
+     * Returns {@code true} if the canvas is rendered at a scale of 1.0 (or 
+     * is not showing in a window).  Text sprites are rasterized at the 
+     * logical resolution and drawn with an identity transform, so they 
+     * would be blurry on a high DPI screen, and are not used there.
+     * 
+     * @return A boolean.
+     */
+    private boolean isUnitRenderScale() {
+        Scene scene = this.gc.getCanvas().getScene();
+        Window window = scene == null ? null : scene.getWindow();
+        return window == null || (window.getRenderScaleX() == 1.0 
+                && window.getRenderScaleY() == 1.0);
+    }
+
+    /**
+     * Draws a text sprite with its origin at {@code (x, y)} in user space.
+     * The sprite is already rasterized with the linear part of the current
+     * transform, so it is drawn at the nearest whole pixel in device space
+     * with an identity transform.
+     * 
+     * @param sprite  the sprite ({@code null} not permitted).
+     * @param x  the x-coordinate.
+     * @param y  the y-coordinate.
+     */
+    private void drawSprite(TextSpriteCache.Sprite sprite, double x, 
+            double y) {
+        final AffineTransform t = this.transform;
+        double dx = t.getScaleX() * x + t.getShearX() * y 
+                + t.getTranslateX() + sprite.offsetX;
+        double dy = t.getShearY() * x + t.getScaleY() * y 
+                + t.getTranslateY() + sprite.offsetY;
+        syncState(COMPOSITE);
+        this.gc.save();
+        this.gc.setTransform(1.0, 0.0, 0.0, 1.0, 0.0, 0.0);
+        this.gc.drawImage(sprite.image, Math.rint(dx), Math.rint(dy));
+        this.gc.restore();
+    }
+
     /**
      * Draws a string of attributed characters at {@code (x, y)}.  The 
      * call is delegated to 
@@ -1051,7 +2001,11 @@ public class FXGraphics2D extends Graphics2D {
     }
 
     /**
-     * Draws a string of attributed characters at {@code (x, y)}. 
+     * Draws a string of attributed characters at {@code (x, y)}.  Text that
+     * is styled with font, foreground, background, underline and 
+     * strikethrough attributes is drawn as a sequence of runs with the 
+     * JavaFX text renderer.  Text with any other attributes is drawn as 
+     * outlines via a {@code TextLayout}.
      * 
      * @param iterator  an iterator over the characters ({@code null} not 
      *     permitted).
@@ -1063,6 +2017,11 @@ public class FXGraphics2D extends Graphics2D {
                            float y) {
         Set<AttributedCharacterIterator.Attribute> s = iterator.getAllAttributeKeys();
         if (!s.isEmpty()) {
+            StyledText styled = StyledText.get(iterator);
+            if (styled != null) {
+                drawStyledText(styled, x, y);
+                return;
+            }
             TextLayout layout = new TextLayout(iterator,
                     getFontRenderContext());
             layout.draw(this, x, y);
@@ -1079,7 +2038,51 @@ public class FXGraphics2D extends Graphics2D {
     }
 
     /**
-     * Draws the specified glyph vector at the location {@code (x, y)}.
+     * Draws styled text with its origin at {@code (x, y)}, one run at a 
+     * time.  The paint and font are restored afterwards.
+     * 
+     * @param styled  the styled text ({@code null} not permitted).
+     * @param x  the x-coordinate.
+     * @param y  the y-coordinate.
+     */
+    private void drawStyledText(StyledText styled, float x, float y) {
+        final Color savedColor = this.color;
+        final Paint savedPaint = this.paint;
+        final Font savedFont = this.font;
+        for (StyledText.Run run : styled.runs) {
+            final double rx = x + run.x;
+            if (run.background != null) {
+                setPaint(run.background);
+                fill(rect(rx, y - run.ascent, run.width, 
+                        run.ascent + run.descent));
+            }
+            setPaint(run.foreground != null ? run.foreground : savedPaint);
+            setFont(run.font);
+            if (this.pickId != null) {
+                recordPick(rx, y - run.ascent, run.width, 
+                        run.ascent + run.descent, 0.0);
+            }
+            syncState(TEXT_STATE);
+            this.gc.fillText(run.text, rx, y);
+            if (run.underline) {
+                fill(rect(rx, y + run.underlineOffset, run.width, 
+                        run.underlineThickness));
+            }
+            if (run.strikethrough) {
+                fill(rect(rx, y + run.strikethroughOffset, run.width, 
+                        run.strikethroughThickness));
+            }
+        }
+        setFont(savedFont);
+        setColor(savedColor);
+        setPaint(savedPaint);
+    }
+
+    /**
+     * Draws the specified glyph vector at the location {@code (x, y)}.  The
+     * glyph outlines come from a cache that is shared by all instances, 
+     * unless the glyph vector has glyph transforms (in which case the 
+     * outline of the whole glyph vector is filled).
      * 
      * @param g  the glyph vector ({@code null} not permitted).
      * @param x  the x-coordinate.
@@ -1087,7 +2090,29 @@ public class FXGraphics2D extends Graphics2D {
      */
     @Override
     public void drawGlyphVector(GlyphVector g, float x, float y) {
-        fill(g.getOutline(x, y));
+        if ((g.getLayoutFlags() & GlyphVector.FLAG_HAS_TRANSFORMS) != 0
+                || g.getFont().isTransformed()
+                || g.getFontRenderContext().isTransformed()) {
+            fill(g.getOutline(x, y));
+            return;
+        }
+        if (this.pickId != null) {
+            Rectangle2D bounds = g.getLogicalBounds();
+            recordPick(x + bounds.getX(), y + bounds.getY(), 
+                    bounds.getWidth(), bounds.getHeight(), 0.0);
+        }
+        final int count = g.getNumGlyphs();
+        final float[] positions = g.getGlyphPositions(0, count, null);
+        beginPath();
+        for (int i = 0; i < count; i++) {
+            final float px = positions[2 * i];
+            final float py = positions[2 * i + 1];
+            PackedPath outline = GlyphOutlineCache.SHARED.get(g, i, px, py);
+            outline.appendTo(this.gc, x + px, y + py);
+        }
+        syncFillRule(FillRule.NON_ZERO);
+        syncState(FILL_STATE);
+        this.gc.fill();
     }
 
     /**
@@ -1112,7 +2137,9 @@ public class FXGraphics2D extends Graphics2D {
      */
     @Override
     public void translate(double tx, double ty) {
+        this.gcHandler.flush();
         this.transform.translate(tx, ty);
+        transformChanged();
         this.gc.translate(tx, ty);
     }
 
@@ -1123,7 +2150,9 @@ public class FXGraphics2D extends Graphics2D {
      */
     @Override
     public void rotate(double theta) {
+        this.gcHandler.flush();
         this.transform.rotate(theta);
+        transformChanged();
         this.gc.rotate(Math.toDegrees(theta));
     }
 
@@ -1149,7 +2178,9 @@ public class FXGraphics2D extends Graphics2D {
      */
     @Override
     public void scale(double sx, double sy) {
+        this.gcHandler.flush();
         this.transform.scale(sx, sy);
+        transformChanged();
         this.gc.scale(sx, sy);
     }
 
@@ -1203,11 +2234,13 @@ public class FXGraphics2D extends Graphics2D {
      */
     @Override
     public void setTransform(AffineTransform t) {
+        this.gcHandler.flush();
         if (t == null) {
             this.transform = t = new AffineTransform();
         } else {
             this.transform = new AffineTransform(t);
         }
+        transformChanged();
         this.gc.setTransform(t.getScaleX(), t.getShearY(), t.getShearX(),
                 t.getScaleY(), t.getTranslateX(), t.getTranslateY());
     }
@@ -1215,7 +2248,15 @@ public class FXGraphics2D extends Graphics2D {
     /**
      * Returns {@code true} if the rectangle (in device space) intersects
      * with the shape (the interior, if {@code onStroke} is {@code false}, 
-     * otherwise the stroked outline of the shape).
+     * otherwise the stroked outline of the shape).  Rectangles, ellipses, 
+     * round rectangles and lines are tested directly where the transform 
+     * allows it.  Other shapes are first tested with 
+     * {@link Path2D#intersects(PathIterator, double, double, double, double)},
+     * which can only return {@code true} conservatively, so a positive 
+     * result is confirmed with an {@code Area} intersection (which is 
+     * slow, but exact).  Stroked outlines are cached (by stroke and shape 
+     * geometry) so that repeated tests for the same items, for example on 
+     * each mouse move, do not recreate them.
      * 
      * @param rect  a rectangle (in device space).
      * @param s the shape.
@@ -1225,19 +2266,80 @@ public class FXGraphics2D extends Graphics2D {
      */
     @Override
     public boolean hit(Rectangle rect, Shape s, boolean onStroke) {
-        final Shape ts;
+        final AffineTransform t = this.transform;
+        Rectangle2D userRect = null;
+        if (t.getShearX() == 0.0 && t.getShearY() == 0.0 
+                && t.getScaleX() != 0.0 && t.getScaleY() != 0.0) {
+            // the rectangle maps exactly to a rectangle in user space
+            double x0 = (rect.x - t.getTranslateX()) / t.getScaleX();
+            double x1 = (rect.x + rect.width - t.getTranslateX()) 
+                    / t.getScaleX();
+            double y0 = (rect.y - t.getTranslateY()) / t.getScaleY();
+            double y1 = (rect.y + rect.height - t.getTranslateY()) 
+                    / t.getScaleY();
+            userRect = new Rectangle2D.Double(Math.min(x0, x1), 
+                    Math.min(y0, y1), Math.abs(x1 - x0), Math.abs(y1 - y0));
+        }
         if (onStroke) {
-            ts = _createTransformedShape(this.stroke.createStrokedShape(s), false);
-        } else {
-            ts = _createTransformedShape(s, false);
+            if (userRect != null && this.stroke instanceof BasicStroke) {
+                final double pad = strokePadding();
+                final Rectangle2D b = s.getBounds2D();
+                if (b.getMaxX() + pad < userRect.getMinX() 
+                        || b.getMinX() - pad > userRect.getMaxX()
+                        || b.getMaxY() + pad < userRect.getMinY()
+                        || b.getMinY() - pad > userRect.getMaxY()) {
+                    return false;
+                }
+                // a line that crosses the rectangle is inside its outline
+                if (s instanceof Line2D 
+                        && ((BasicStroke) this.stroke).getLineWidth() > 0f
+                        && s.intersects(userRect)) {
+                    return true;
+                }
+            }
+            if (this.strokedShapeKey == null) {
+                this.strokedShapeKey = new PackedPath();
+            }
+            PackedPath outline = StrokedShapeCache.SHARED.get(this.stroke, s,
+                    this.strokedShapeKey);
+            if (!Path2D.intersects(outline.getPathIterator(t), rect.x, 
+                    rect.y, rect.width, rect.height)) {
+                return false;
+            }
+            Path2D ts = new Path2D.Double();
+            ts.append(outline.getPathIterator(t), false);
+            return areaIntersects(rect, ts);
+        }
+        if (s instanceof Line2D) {
+            // a line has no interior
+            return false;
         }
-        if (!rect.getBounds2D().intersects(ts.getBounds2D())) {
+        if (userRect != null && (s instanceof Rectangle2D 
+                || s instanceof Ellipse2D || s instanceof RoundRectangle2D)) {
+            // these shapes have exact intersection tests
+            return s.intersects(userRect);
+        }
+        if (!Path2D.intersects(s.getPathIterator(t), rect.x, rect.y, 
+                rect.width, rect.height)) {
             return false;
         }
-        // note: Area class is very slow (especially for rect):
+        return areaIntersects(rect, t.createTransformedShape(s));
+    }
+
+    /**
+     * Returns {@code true} if the rectangle and the shape (both in device 
+     * space) have an intersection with a non-empty area.  This uses the 
+     * {@code Area} class, which is very slow, so it is only called to 
+     * confirm a conservative test.
+     * 
+     * @param rect  the rectangle.
+     * @param s  the shape.
+     * 
+     * @return A boolean.
+     */
+    private static boolean areaIntersects(Rectangle rect, Shape s) {
         final Area a1 = new Area(rect);
-        final Area a2 = new Area(ts);
-        a1.intersect(a2);
+        a1.intersect(new Area(s));
         return !a1.isEmpty();
     }
 
@@ -1269,7 +2371,14 @@ public class FXGraphics2D extends Graphics2D {
         if (this.clip == null) {
             return null;
         }
-        return getClipInternally().getBounds();
+        final Shape c = getClipInternally();
+        if (c == null) {
+            return null;
+        }
+        if (this.userClipBounds == null) {
+            this.userClipBounds = c.getBounds();
+        }
+        return new Rectangle(this.userClipBounds);
     }
 
     /**
@@ -1282,19 +2391,158 @@ public class FXGraphics2D extends Graphics2D {
      */
     @Override
     public Shape getClip() {
-        if (this.clip == null) {
-            return null;
-        }
-        return _inverseTransform(this.clip, true);
+        return _clone(getClipInternally());
     }
 
+    /**
+     * Returns the clip in user space, which is cached until the clip or 
+     * transform changes.  The result must not be modified or returned to
+     * callers.
+     * 
+     * @return The clip (possibly {@code null}).
+     */
     private Shape getClipInternally() {
-        if (this.clip == null) {
-            return null;
+        if (!this.userClipValid) {
+            this.userClip = this.clip == null ? null 
+                    : inverseTransformClip();
+            this.userClipBounds = null;
+            this.userClipValid = true;
+        }
+        return this.userClip;
+    }
+
+    /**
+     * Resets the values that are derived from the clip, after the clip has
+     * changed.
+     */
+    private void clipChanged() {
+        this.deviceClipBounds = null;
+        this.userClipValid = false;
+        this.gcHandler.newPixelGeneration();
+    }
+
+    /**
+     * Resets the values that are derived from the transform, after the 
+     * transform has changed.
+     */
+    private void transformChanged() {
+        this.inverseTransformValid = false;
+        this.userClipValid = false;
+    }
+
+    /**
+     * Returns the inverse of the current transform, which is cached until 
+     * the transform changes.  The result must not be modified.
+     * 
+     * @return The inverse transform, or {@code null} if the current 
+     *     transform is not invertible.
+     */
+    private AffineTransform inverseTransform() {
+        if (!this.inverseTransformValid) {
+            try {
+                this.inverseTransform = this.transform.createInverse();
+            } catch (NoninvertibleTransformException e) {
+                this.inverseTransform = null;
+            }
+            this.inverseTransformValid = true;
+        }
+        return this.inverseTransform;
+    }
+
+    /**
+     * Returns {@code true} if the transform maps rectangles with edges 
+     * parallel to the axes to rectangles with edges parallel to the axes 
+     * (that is, it has no rotation or shear other than multiples of 90 
+     * degrees).
+     * 
+     * @param t  the transform ({@code null} not permitted).
+     * 
+     * @return A boolean. 
+     */
+    private static boolean isRectilinear(AffineTransform t) {
+        return (t.getShearX() == 0.0 && t.getShearY() == 0.0) 
+                || (t.getScaleX() == 0.0 && t.getScaleY() == 0.0);
+    }
+
+    /**
+     * Transforms a rectangle by a rectilinear transform (see 
+     * {@link #isRectilinear(java.awt.geom.AffineTransform)}).
+     * 
+     * @param t  the transform ({@code null} not permitted).
+     * @param r  the rectangle ({@code null} not permitted).
+     * 
+     * @return A new rectangle.
+     */
+    private static Rectangle2D transformRect(AffineTransform t, 
+            Rectangle2D r) {
+        final double x0 = t.getScaleX() * r.getMinX() 
+                + t.getShearX() * r.getMinY() + t.getTranslateX();
+        final double y0 = t.getShearY() * r.getMinX() 
+                + t.getScaleY() * r.getMinY() + t.getTranslateY();
+        final double x1 = t.getScaleX() * r.getMaxX() 
+                + t.getShearX() * r.getMaxY() + t.getTranslateX();
+        final double y1 = t.getShearY() * r.getMaxX() 
+                + t.getScaleY() * r.getMaxY() + t.getTranslateY();
+        return new Rectangle2D.Double(Math.min(x0, x1), Math.min(y0, y1), 
+                Math.abs(x1 - x0), Math.abs(y1 - y0));
+    }
+
+    /**
+     * Transforms a clip shape from user space to device space.  Rectangles
+     * are kept as rectangles when the transform is rectilinear, so that 
+     * clips can be intersected without using {@code Area}.
+     * 
+     * @param s  the clip shape (in user space, {@code null} permitted).
+     * @param clone  clone the shape if the transform is the identity?
+     * 
+     * @return The clip shape in device space. 
+     */
+    private Shape transformClip(Shape s, boolean clone) {
+        if (s instanceof Rectangle2D && isRectilinear(this.transform)) {
+            final Rectangle2D r = (Rectangle2D) s;
+            if (r.getWidth() >= 0.0 && r.getHeight() >= 0.0) {
+                return transformRect(this.transform, r);
+            }
+        }
+        return _createTransformedShape(s, clone);
+    }
+
+    /**
+     * Returns the clip in user space.  A rectangular clip is returned as a
+     * rectangle when the transform is rectilinear.
+     * 
+     * @return The clip in user space (possibly {@code null}).
+     */
+    private Shape inverseTransformClip() {
+        if (this.clip instanceof Rectangle2D && !this.transform.isIdentity()
+                && isRectilinear(this.transform)) {
+            final AffineTransform inv = inverseTransform();
+            return inv == null ? null 
+                    : transformRect(inv, (Rectangle2D) this.clip);
         }
         return _inverseTransform(this.clip, false);
     }
 
+    /**
+     * Maps a clip shape (in user space) to a path in the graphics context,
+     * using a single {@code rect()} call for a rectangle.
+     * 
+     * @param s  the clip shape ({@code null} not permitted).
+     * 
+     * @return The fill rule for the path.
+     */
+    private FillRule clipToPath(Shape s) {
+        if (s instanceof Rectangle2D) {
+            final Rectangle2D r = (Rectangle2D) s;
+            if (r.getWidth() >= 0.0 && r.getHeight() >= 0.0) {
+                beginPath();
+                this.gc.rect(r.getX(), r.getY(), r.getWidth(), r.getHeight());
+                return FillRule.NON_ZERO;
+            }
+        }
+        return shapeToPath(s);
+    }
+
     /**
      * Clips to the intersection of the current clipping region and the 
      * specified rectangle.
@@ -1342,30 +2590,21 @@ public class FXGraphics2D extends Graphics2D {
             reapplyAttributes(this.gcHandler.restoreToCount(saveCount));
         }
         // null is handled fine here...
-        this.clip = _createTransformedShape(shape, clone); // device space
+        this.clip = transformClip(shape, clone); // device space
+        clipChanged();
         if (clip != null) {
-            // Remember the Graphics2D attributes in force at the point of pushing the JavaFX context:
-            this.gcHandler.save(new GCStateHandler.GCState(color, paint, stroke, font, transform));
+            // Remember the attributes in force at the point of pushing the JavaFX context:
+            this.gcHandler.save(this.transform);
 
-            shapeToPath(shape); // user space
+            syncFillRule(clipToPath(shape)); // user space
             this.gc.clip();
         }
     }
 
     private void reapplyAttributes(final GCState state) {
         if (state != null) {
-            if (!paintsAreEqual(this.paint, state.savedPaint)) {
-                applyPaint(this.paint);
-            }
-            if (!this.color.equals(state.savedColor)) {
-                applyColor(this.color);
-            }
-            if (!this.stroke.equals(state.savedStroke)) {
-                applyStroke(this.stroke);
-            }
-            if (!this.font.equals(state.savedFont)) {
-                applyFont(this.font);
-            }
+            // the other attributes are restored in the GCStateHandler and 
+            // will be checked before the next drawing operation
             if (!this.transform.equals(state.savedTransform)) {
                 setTransform(this.transform);
             }
@@ -1399,9 +2638,13 @@ public class FXGraphics2D extends Graphics2D {
         if (s == null) {
             throw new NullPointerException("clip(Shape): null argument.");
         }
-        final Shape ts = _createTransformedShape(s, false);
+        final Shape ts = transformClip(s, false);
         final Shape clipNew;
-        if (!ts.intersects(this.clip.getBounds2D())) {
+        if (ts instanceof Rectangle2D && this.clip instanceof Rectangle2D) {
+            final Rectangle2D r = ((Rectangle2D) ts).createIntersection(
+                    (Rectangle2D) this.clip);
+            clipNew = r.isEmpty() ? new Rectangle2D.Double() : r;
+        } else if (!ts.intersects(this.clip.getBounds2D())) {
             clipNew = new Rectangle2D.Double();
         } else {
             // note: Area class is very slow (especially for rectangles)
@@ -1411,11 +2654,12 @@ public class FXGraphics2D extends Graphics2D {
             clipNew = new Path2D.Double(a1);
         }
         this.clip = clipNew; // device space
+        clipChanged();
         if (!this.gcHandler.isStateSavedSince(saveCount)) {
-            // Remember the Graphics2D attributes in force at the point of pushing the JavaFX context:
-            this.gcHandler.save(new GCStateHandler.GCState(color, paint, stroke, font, transform));
+            // Remember the attributes in force at the point of pushing the JavaFX context:
+            this.gcHandler.save(this.transform);
         }
-        shapeToPath(this.getClipInternally());
+        syncFillRule(clipToPath(this.getClipInternally()));
         this.gc.clip();
     }
 
@@ -1589,8 +2833,50 @@ public class FXGraphics2D extends Graphics2D {
      */
     @Override
     public void drawPolyline(int[] xPoints, int[] yPoints, int nPoints) {
-        GeneralPath p = createPolygon(xPoints, yPoints, nPoints, false);
-        draw(p);
+        if (!(this.stroke instanceof BasicStroke)) {
+            draw(createPolygon(xPoints, yPoints, nPoints, false));
+            return;
+        }
+        if (nPoints <= 0) {
+            return;
+        }
+        copyToBuffers(xPoints, yPoints, nPoints);
+        drawPolyline(this.xBuffer, this.yBuffer, nPoints);
+    }
+
+    /**
+     * Draws the specified multi-segment line using the current 
+     * {@code paint} and {@code stroke}.  This avoids the conversion to 
+     * {@code int} coordinates (and the creation of a path) for callers that
+     * already have the coordinates in {@code double} arrays.
+     * 
+     * @param xPoints  the x-points ({@code null} not permitted).
+     * @param yPoints  the y-points ({@code null} not permitted).
+     * @param nPoints  the number of points to use for the polyline.
+     * 
+     * @since 2.1.6
+     */
+    public void drawPolyline(double[] xPoints, double[] yPoints, 
+            int nPoints) {
+        if (!(this.stroke instanceof BasicStroke)) {
+            draw(createPolygon(xPoints, yPoints, nPoints, false));
+            return;
+        }
+        if (nPoints <= 0) {
+            return;
+        }
+        if (isPolyCulled(xPoints, yPoints, nPoints, strokePadding())) {
+            return;
+        }
+        final LineDecimator d = lineDecimator();
+        if (d != null) {
+            d.decimate(xPoints, yPoints, nPoints, this.transform);
+            syncState(STROKE_STATE);
+            this.gc.strokePolyline(d.xs, d.ys, d.count);
+            return;
+        }
+        syncState(STROKE_STATE);
+        this.gc.strokePolyline(xPoints, yPoints, nPoints);
     }
 
     /**
@@ -1604,8 +2890,40 @@ public class FXGraphics2D extends Graphics2D {
      * @see #fillPolygon(int[], int[], int)      */
     @Override
     public void drawPolygon(int[] xPoints, int[] yPoints, int nPoints) {
-        GeneralPath p = createPolygon(xPoints, yPoints, nPoints, true);
-        draw(p);
+        if (!(this.stroke instanceof BasicStroke)) {
+            draw(createPolygon(xPoints, yPoints, nPoints, true));
+            return;
+        }
+        if (nPoints <= 0) {
+            return;
+        }
+        copyToBuffers(xPoints, yPoints, nPoints);
+        drawPolygon(this.xBuffer, this.yBuffer, nPoints);
+    }
+
+    /**
+     * Draws the specified polygon using the current {@code paint} and 
+     * {@code stroke}.
+     * 
+     * @param xPoints  the x-points ({@code null} not permitted).
+     * @param yPoints  the y-points ({@code null} not permitted).
+     * @param nPoints  the number of points to use for the polygon.
+     * 
+     * @since 2.1.6
+     */
+    public void drawPolygon(double[] xPoints, double[] yPoints, int nPoints) {
+        if (!(this.stroke instanceof BasicStroke)) {
+            draw(createPolygon(xPoints, yPoints, nPoints, true));
+            return;
+        }
+        if (nPoints <= 0) {
+            return;
+        }
+        if (isPolyCulled(xPoints, yPoints, nPoints, strokePadding())) {
+            return;
+        }
+        syncState(STROKE_STATE);
+        this.gc.strokePolygon(xPoints, yPoints, nPoints);
     }
 
     /**
@@ -1619,8 +2937,55 @@ public class FXGraphics2D extends Graphics2D {
      */
     @Override
     public void fillPolygon(int[] xPoints, int[] yPoints, int nPoints) {
-        GeneralPath p = createPolygon(xPoints, yPoints, nPoints, true);
-        fill(p);
+        if (nPoints <= 0) {
+            return;
+        }
+        copyToBuffers(xPoints, yPoints, nPoints);
+        fillPolygon(this.xBuffer, this.yBuffer, nPoints);
+    }
+
+    /**
+     * Fills the specified polygon using the current {@code paint} (with 
+     * the non-zero winding rule, as for a polygon created with 
+     * {@link #createPolygon(int[], int[], int, boolean)}).
+     * 
+     * @param xPoints  the x-points ({@code null} not permitted).
+     * @param yPoints  the y-points ({@code null} not permitted).
+     * @param nPoints  the number of points to use for the polygon.
+     * 
+     * @since 2.1.6
+     */
+    public void fillPolygon(double[] xPoints, double[] yPoints, int nPoints) {
+        if (nPoints <= 0) {
+            return;
+        }
+        if (isPolyCulled(xPoints, yPoints, nPoints, 0.0)) {
+            return;
+        }
+        syncFillRule(FillRule.NON_ZERO);
+        syncState(FILL_STATE);
+        this.gc.fillPolygon(xPoints, yPoints, nPoints);
+    }
+
+    /**
+     * Copies {@code int} coordinates to the reusable coordinate buffers, 
+     * growing the buffers if necessary.
+     * 
+     * @param xPoints  the x-points.
+     * @param yPoints  the y-points.
+     * @param nPoints  the number of points.
+     */
+    private void copyToBuffers(int[] xPoints, int[] yPoints, int nPoints) {
+        if (this.xBuffer == null || this.xBuffer.length < nPoints) {
+            int capacity = Math.max(nPoints, 
+                    this.xBuffer == null ? 16 : this.xBuffer.length * 2);
+            this.xBuffer = new double[capacity];
+            this.yBuffer = new double[capacity];
+        }
+        for (int i = 0; i < nPoints; i++) {
+            this.xBuffer[i] = xPoints[i];
+            this.yBuffer[i] = yPoints[i];
+        }
     }
 
     /**
@@ -1647,6 +3012,30 @@ public class FXGraphics2D extends Graphics2D {
         return p;
     }
 
+    /**
+     * Creates a polygon from the specified {@code x} and {@code y} 
+     * coordinate arrays.
+     * 
+     * @param xPoints  the x-points.
+     * @param yPoints  the y-points.
+     * @param nPoints  the number of points to use for the polyline.
+     * @param close  closed?
+     * 
+     * @return A polygon.
+     */
+    private Path2D createPolygon(double[] xPoints, double[] yPoints, 
+            int nPoints, boolean close) {
+        Path2D p = new Path2D.Double(Path2D.WIND_NON_ZERO, nPoints + 1);
+        p.moveTo(xPoints[0], yPoints[0]);
+        for (int i = 1; i < nPoints; i++) {
+            p.lineTo(xPoints[i], yPoints[i]);
+        }
+        if (close) {
+            p.closePath();
+        }
+        return p;
+    }
+
     /**
      * Draws an image at the location {@code (x, y)}.  Note that the 
      * {@code observer} is ignored.
@@ -1691,6 +3080,14 @@ public class FXGraphics2D extends Graphics2D {
     @Override
     public boolean drawImage(final Image img, int x, int y,
                              int w, int h, ImageObserver observer) {
+        if (this.cullInvisible && (isCompositeTransparent() 
+                || isCulled(x, y, w, h, 0.0))) {
+            this.gcHandler.culledCount++;
+            return true;
+        }
+        if (this.pickId != null) {
+            recordPick(x, y, w, h, 0.0);
+        }
         final BufferedImage buffered;
         if (img instanceof BufferedImage) {
             buffered = (BufferedImage) img;
@@ -1701,6 +3098,7 @@ public class FXGraphics2D extends Graphics2D {
             g2.dispose();
         }
         javafx.scene.image.WritableImage fxImage = SwingFXUtils.toFXImage(buffered, null);
+        syncState(COMPOSITE);
         this.gc.drawImage(fxImage, x, y, w, h);
         return true;
     }
@@ -2051,10 +3449,9 @@ public class FXGraphics2D extends Graphics2D {
 
     /**
      * Returns {@code true} if the two {@code Paint} objects are equal 
-     * OR both {@code null}.  This method handles
-     * {@code GradientPaint}, {@code LinearGradientPaint} 
-     * and {@code RadialGradientPaint} as special cases, since those classes do
-     * not override the {@code equals()} method.
+     * OR both {@code null}.  Colors and the gradient paints are handled
+     * before this method is called (see {@link #setPaint(java.awt.Paint)}),
+     * so other paints are compared with their {@code equals()} method.
      *
      * @param p1  paint 1 ({@code null} permitted).
      * @param p2  paint 2 ({@code null} permitted).
@@ -2065,51 +3462,9 @@ public class FXGraphics2D extends Graphics2D {
         if (p1 == p2) {
             return true;
         }
-
-        // handle cases where one argument or the other is null
         if (p1 == null || p2 == null) {
             return false;
         }
-
-        // handle cases...
-        if (p1 instanceof Color && p2 instanceof Color) {
-            return p1.equals(p2);
-        }
-        if (p1 instanceof GradientPaint && p2 instanceof GradientPaint) {
-            GradientPaint gp1 = (GradientPaint) p1;
-            GradientPaint gp2 = (GradientPaint) p2;
-            return gp1.getColor1().equals(gp2.getColor1())
-                    && gp1.getColor2().equals(gp2.getColor2())
-                    && gp1.getPoint1().equals(gp2.getPoint1())
-                    && gp1.getPoint2().equals(gp2.getPoint2())
-                    && gp1.isCyclic() == gp2.isCyclic()
-                    && gp1.getTransparency() == gp2.getTransparency();
-        }
-        if (p1 instanceof LinearGradientPaint
-                && p2 instanceof LinearGradientPaint) {
-            LinearGradientPaint lgp1 = (LinearGradientPaint) p1;
-            LinearGradientPaint lgp2 = (LinearGradientPaint) p2;
-            return lgp1.getStartPoint().equals(lgp2.getStartPoint())
-                    && lgp1.getEndPoint().equals(lgp2.getEndPoint())
-                    && Arrays.equals(lgp1.getFractions(), lgp2.getFractions())
-                    && Arrays.equals(lgp1.getColors(), lgp2.getColors())
-                    && lgp1.getCycleMethod() == lgp2.getCycleMethod()
-                    && lgp1.getColorSpace() == lgp2.getColorSpace()
-                    && lgp1.getTransform().equals(lgp2.getTransform());
-        }
-        if (p1 instanceof RadialGradientPaint
-                && p2 instanceof RadialGradientPaint) {
-            RadialGradientPaint rgp1 = (RadialGradientPaint) p1;
-            RadialGradientPaint rgp2 = (RadialGradientPaint) p2;
-            return rgp1.getCenterPoint().equals(rgp2.getCenterPoint())
-                    && rgp1.getRadius() == rgp2.getRadius()
-                    && rgp1.getFocusPoint().equals(rgp2.getFocusPoint())
-                    && Arrays.equals(rgp1.getFractions(), rgp2.getFractions())
-                    && Arrays.equals(rgp1.getColors(), rgp2.getColors())
-                    && rgp1.getCycleMethod() == rgp2.getCycleMethod()
-                    && rgp1.getColorSpace() == rgp2.getColorSpace()
-                    && rgp1.getTransform().equals(rgp2.getTransform());
-        }
         return p1.equals(p2);
     }
 
@@ -2124,13 +3479,11 @@ public class FXGraphics2D extends Graphics2D {
         if (this.transform.isIdentity()) {
             return (clone) ? _clone(s) : s;
         }
-        try {
-            final AffineTransform inv = this.transform.createInverse();
-            return inv.createTransformedShape(s);
-        } catch (NoninvertibleTransformException nite) {
-            // System.err.println("NoninvertibleTransformException: " + this.transform);
+        final AffineTransform inv = inverseTransform();
+        if (inv == null) {
             return null;
         }
+        return inv.createTransformedShape(s);
     }
 
     private Shape _clone(final Shape s) {
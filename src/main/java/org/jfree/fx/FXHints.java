@@ -42,10 +42,31 @@ import java.awt.RenderingHints;
 
 /**
  * Defines the rendering hints that can be used with the {@link FXGraphics2D} 
- * class.  There is just one hint defined at present:<br>
+ * class:<br>
  * <ul>
  * <li>{@link #KEY_USE_FX_FONT_METRICS} that controls whether JavaFX font
- * metrics or Java2D font metrics are used.</li>
+ * metrics or Java2D font metrics are used;</li>
+ * <li>{@link #KEY_PROPORTIONAL_GRADIENTS} that controls whether linear 
+ * gradients are converted to proportional gradients when filling 
+ * rectangles and ellipses;</li>
+ * <li>{@link #KEY_CACHE_STROKED_SHAPES} that controls whether the outlines
+ * created by strokes other than {@code BasicStroke} are cached;</li>
+ * <li>{@link #KEY_CACHE_TEXT_SPRITES} that controls whether repeated 
+ * strings are drawn from cached images;</li>
+ * <li>{@link #KEY_CACHE_SHAPE_PATHS} that supplies a version under which 
+ * the segments of {@code Path2D} instances are cached;</li>
+ * <li>{@link #KEY_DECIMATE_LINES} that controls whether lines with many 
+ * vertices per pixel column are decimated;</li>
+ * <li>{@link #KEY_CULL_INVISIBLE} that controls whether drawing operations
+ * that would not be visible are skipped;</li>
+ * <li>{@link #KEY_LOD_THRESHOLD} that sets the size below which rectangles
+ * and ellipses are drawn as single pixels;</li>
+ * <li>{@link #KEY_BATCH_LINES} that controls whether consecutive line 
+ * segments are drawn as a single path;</li>
+ * <li>{@link #KEY_BATCH_RECTS} that controls whether consecutive 
+ * rectangle fills are drawn as a single path;</li>
+ * <li>{@link #KEY_PICK_ID} that sets the id recorded in the pick index for
+ * the items that are drawn.</li>
  * </ul>
  * 
  * @since 1.5
@@ -64,6 +85,170 @@ public final class FXHints {
      */
     public static final FXHints.Key KEY_USE_FX_FONT_METRICS 
             = new FXHints.Key(0);
+
+    /**
+     * The key for the hint that controls whether linear gradient paints are
+     * converted to proportional (bounds-relative) JavaFX gradients when 
+     * filling rectangles, rounded rectangles and ellipses.  This allows a 
+     * single JavaFX gradient to be reused for many shapes (for example, the
+     * bars in a bar chart) where only the geometry changes.  A 
+     * {@code Boolean} value (or {@code null}) can be assigned as the value 
+     * for this key.
+     * 
+     * @since 2.1.6
+     */
+    public static final FXHints.Key KEY_PROPORTIONAL_GRADIENTS
+            = new FXHints.Key(1);
+
+    /**
+     * The key for the hint that controls whether the outlines created by 
+     * strokes that are not instances of {@code BasicStroke} are cached, so 
+     * that redrawing an equal shape with the same stroke (for example, on 
+     * the next frame of an animation) does not call 
+     * {@code Stroke.createStrokedShape()} again.  The cache is bounded by 
+     * the total number of path segments it holds.  A {@code Boolean} value 
+     * (or {@code null}) can be assigned as the value for this key.
+     * 
+     * @since 2.1.6
+     */
+    public static final FXHints.Key KEY_CACHE_STROKED_SHAPES
+            = new FXHints.Key(2);
+
+    /**
+     * The key for the hint that controls whether strings are rasterized to
+     * cached images (sprites) that are drawn with {@code drawImage()}, 
+     * rather than drawing the text each time.  This is intended for text 
+     * that is redrawn many times, such as axis labels and legend items.  A 
+     * sprite is created the second time the same string is drawn with the 
+     * same font, color and rotation/scale, and the sprites are held in a 
+     * memory bounded cache.  Sprites are only used for solid color paints, 
+     * on the JavaFX application thread, and they are drawn at whole pixel
+     * positions.  Sprites are rasterized at a scale of 1.0, so they are not
+     * used when the canvas is shown in a window with a render scale other 
+     * than 1.0 (where they would be blurry).  A {@code Boolean} value (or 
+     * {@code null}) can be assigned as the value for this key.
+     * 
+     * @since 2.1.6
+     */
+    public static final FXHints.Key KEY_CACHE_TEXT_SPRITES
+            = new FXHints.Key(3);
+
+    /**
+     * The key for the hint that controls whether the segments of 
+     * {@code Path2D} instances (including {@code GeneralPath}) that are 
+     * drawn or filled are cached, so that drawing the same (unchanged) path
+     * instance again replays the cached segments instead of iterating the
+     * path.  The cache holds weak references to the paths.  The value for 
+     * this key is a version supplied by the caller (any object with a 
+     * suitable {@code equals()} method, for example a {@code Long} 
+     * modification count): a cached path is only reused when it is drawn 
+     * with a version equal to the one it was cached with, so the version 
+     * must be changed whenever any path drawn with it is modified 
+     * (including a path that is reset and rebuilt).  A {@code null} or 
+     * {@code Boolean.FALSE} value disables the cache.
+     * 
+     * @since 2.1.6
+     */
+    public static final FXHints.Key KEY_CACHE_SHAPE_PATHS
+            = new FXHints.Key(4);
+
+    /**
+     * The key for the hint that controls whether paths that contain only 
+     * straight line segments (and polylines) are decimated before they are
+     * drawn.  For each run of consecutive vertices that fall in the same 
+     * pixel column in device space, only the first and last vertices and 
+     * the vertices with the minimum and maximum y-coordinates are drawn.  
+     * This greatly reduces the work for dense lines (such as time series 
+     * with many more points than pixels) with little visible change.  Lines
+     * drawn with a dashed stroke are not decimated, and fills are not 
+     * affected.  A {@code Boolean} value (or {@code null}) can be assigned 
+     * as the value for this key.
+     * 
+     * @since 2.1.6
+     */
+    public static final FXHints.Key KEY_DECIMATE_LINES
+            = new FXHints.Key(5);
+
+    /**
+     * The key for the hint that controls whether drawing operations that 
+     * would not be visible are skipped.  An operation is skipped if the 
+     * (conservatively estimated) device space bounds of the primitive lie
+     * outside the canvas or the current clip, or if the paint or composite
+     * is fully transparent.  The number of skipped operations is reported 
+     * by {@link FXGraphics2D#getCulledCount()}.  A {@code Boolean} value 
+     * (or {@code null}) can be assigned as the value for this key.
+     * 
+     * @since 2.1.6
+     */
+    public static final FXHints.Key KEY_CULL_INVISIBLE
+            = new FXHints.Key(6);
+
+    /**
+     * The key for the hint that enables a level-of-detail mode for small 
+     * rectangles and ellipses (for example, the markers in a scatter plot 
+     * with many points).  The value is a {@code Number} that specifies a 
+     * size in device pixels: a {@code Rectangle2D} or {@code Ellipse2D} 
+     * that is drawn or filled with a transformed size (including the 
+     * stroke) below this size is drawn as a single pixel instead.  When the
+     * transform has no rotation and the paint is an opaque color, a pixel
+     * that has already been drawn with the same paint (with no other 
+     * drawing since) is skipped.  A {@code null} value (the default) 
+     * disables the mode.
+     * 
+     * @since 2.1.6
+     */
+    public static final FXHints.Key KEY_LOD_THRESHOLD
+            = new FXHints.Key(7);
+
+    /**
+     * The key for the hint that controls whether consecutive calls to draw
+     * a {@code Line2D} (including {@code drawLine()}) with the same state 
+     * are collected and drawn with a single stroke of a path.  Renderers
+     * that draw grid lines or series one segment at a time then generate
+     * one command in the canvas instead of one per segment.  The batch is 
+     * drawn before any other drawing operation or change to the transform
+     * or clip, and when {@link FXGraphics2D#flush()} or 
+     * {@link FXGraphics2D#dispose()} is called, so code that draws 
+     * directly to the graphics context should call {@code flush()} first.
+     * Note that overlapping segments in a batch are painted once, which 
+     * differs from separate strokes for translucent paints.  The value is
+     * a {@code Boolean} and the default is {@code false}.
+     * 
+     * @since 2.1.6
+     */
+    public static final FXHints.Key KEY_BATCH_LINES
+            = new FXHints.Key(8);
+
+    /**
+     * The key for the hint that controls whether consecutive calls to fill
+     * a {@code Rectangle2D} (including {@code fillRect()}) with the same 
+     * state are collected and filled as a single path with one subpath per
+     * rectangle.  Heatmap and bar renderers then generate one command in 
+     * the canvas instead of one per rectangle.  The batch is flushed in 
+     * the same way as for {@link #KEY_BATCH_LINES}.  Overlapping 
+     * rectangles in a batch are painted once, so leave this hint off where
+     * translucent rectangles must blend with each other.  Rectangles 
+     * filled with proportional gradients (see 
+     * {@link #KEY_PROPORTIONAL_GRADIENTS}) are not batched.  The value is 
+     * a {@code Boolean} and the default is {@code false}.
+     * 
+     * @since 2.1.6
+     */
+    public static final FXHints.Key KEY_BATCH_RECTS
+            = new FXHints.Key(9);
+
+    /**
+     * The key for the hint that sets the id that is recorded, along with 
+     * the device space bounds, for each item that is drawn while a pick 
+     * index is installed (see 
+     * {@link FXGraphics2D#setPickIndex(org.jfree.fx.FXPickIndex)}).  The 
+     * value can be any object, and items are not recorded while the value 
+     * is {@code null} (the default).
+     * 
+     * @since 2.1.6
+     */
+    public static final FXHints.Key KEY_PICK_ID
+            = new FXHints.Key(10);
     
     /**
      * A key for hints used by the {@link FXGraphics2D} class.
@@ -89,10 +274,21 @@ public final class FXHints {
          */
         @Override
         public boolean isCompatibleValue(Object val) {
-            if (intKey() == 0) {
+            if (intKey() == 4) {
+                return val == null || Boolean.FALSE.equals(val)
+                        || !(val instanceof Boolean);
+            }
+            if (intKey() >= 0 && intKey() <= 6 || intKey() == 8 
+                    || intKey() == 9) {
                 return val == null
                         || val instanceof Boolean;
             }
+            if (intKey() == 7) {
+                return val == null || val instanceof Number;
+            }
+            if (intKey() == 10) {
+                return true;
+            }
             throw new RuntimeException("Not expected!");
         }
     }
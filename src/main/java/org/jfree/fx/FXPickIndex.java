@@ -0,0 +1,459 @@
+/* ============
+ * FXGraphics2D
+ * ============
+ * 
+ * (C)opyright 2014-present, by David Gilbert.
+ * 
+ * https://github.com/jfree/fxgraphics2d
+ *
+ * The FXGraphics2D class has been developed by David Gilbert for
+ * use in Orson Charts (https://github.com/jfree/orson-charts) and
+ * JFreeChart (http://www.jfree.org/jfreechart).  It may be useful for other
+ * code that uses the Graphics2D API provided by Java2D.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *   - Redistributions of source code must retain the above copyright
+ *     notice, this list of conditions and the following disclaimer.
+ *   - Redistributions in binary form must reproduce the above copyright
+ *     notice, this list of conditions and the following disclaimer in the
+ *     documentation and/or other materials provided with the distribution.
+ *   - Neither the name of JFree.org nor the names of its contributors may
+ *     be used to endorse or promote products derived from this software
+ *     without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF
+ * THE POSSIBILITY OF SUCH DAMAGE.
+ * 
+ */
+
+package org.jfree.fx;
+
+import java.awt.geom.Rectangle2D;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * An index of the device space bounds of the items drawn by an 
+ * {@link FXGraphics2D} instance, for finding the item under the mouse 
+ * pointer (picking).  To record items, install an index with 
+ * {@link FXGraphics2D#setPickIndex(org.jfree.fx.FXPickIndex)} and set the
+ * id for the items that follow with the {@link FXHints#KEY_PICK_ID} 
+ * rendering hint.  Every draw or fill made while the hint has a 
+ * non-{@code null} value adds an entry with the bounds of the operation
+ * in device space (that is, in canvas coordinates, the same as the 
+ * coordinates of mouse events on the canvas).
+ * <p>
+ * The entries are held in a uniform grid that is built on the first query
+ * after the entries change, so that a query only examines the items in 
+ * the cells that it touches.  Call {@link #clear()} before drawing each 
+ * frame: the arrays are kept and reused, so rebuilding the index does not
+ * allocate unless it grows.  Queries return ids with the topmost item 
+ * (the item drawn last) first.  The bounds are rectangles, so an item is
+ * reported for any point within its bounds.
+ * <p>
+ * This class is not thread-safe.
+ * 
+ * @since 2.1.6
+ */
+public final class FXPickIndex {
+
+    /** The default cell size (in device pixels). */
+    private static final double DEFAULT_CELL_SIZE = 32.0;
+
+    /** The maximum number of cells along each axis. */
+    private static final int MAX_CELLS = 512;
+
+    /** The requested cell size. */
+    private final double cellSize;
+
+    /** The item ids. */
+    private Object[] ids;
+
+    /** The item bounds (minX, minY, maxX, maxY for each item). */
+    private double[] bounds;
+
+    /** The number of items. */
+    private int count;
+
+    /** A flag that indicates that the grid needs to be rebuilt. */
+    private boolean dirty;
+
+    /** The x-coordinate of the grid origin. */
+    private double originX;
+
+    /** The y-coordinate of the grid origin. */
+    private double originY;
+
+    /** The width of the grid cells. */
+    private double cellWidth;
+
+    /** The height of the grid cells. */
+    private double cellHeight;
+
+    /** The number of columns in the grid. */
+    private int columns;
+
+    /** The number of rows in the grid. */
+    private int rows;
+
+    /** 
+     * The index in {@code cellItems} of the first item for each cell (with 
+     * one extra element for the end of the last cell). 
+     */
+    private int[] cellStarts;
+
+    /** The item indices for each cell, in drawing order. */
+    private int[] cellItems;
+
+    /** The next free slot in {@code cellItems} for each cell (see build). */
+    private int[] cellCursors;
+
+    /** The stamps used to find the distinct items in a rectangle query. */
+    private int[] stamps;
+
+    /** The current stamp. */
+    private int stamp;
+
+    /**
+     * Creates a new empty index with the default cell size.
+     */
+    public FXPickIndex() {
+        this(DEFAULT_CELL_SIZE);
+    }
+
+    /**
+     * Creates a new empty index.  The cell size is a trade-off between the
+     * number of cells that large items occupy and the number of items that
+     * a query examines (a value close to the typical item size works well).
+     * 
+     * @param cellSize  the cell size in device pixels (must be positive).
+     */
+    public FXPickIndex(double cellSize) {
+        if (!(cellSize > 0.0) || Double.isInfinite(cellSize)) {
+            throw new IllegalArgumentException(
+                    "Requires 'cellSize' to be positive and finite.");
+        }
+        this.cellSize = cellSize;
+        this.ids = new Object[64];
+        this.bounds = new double[256];
+        this.cellStarts = new int[1];
+        this.cellItems = new int[0];
+        this.cellCursors = new int[0];
+        this.stamps = new int[64];
+    }
+
+    /**
+     * Returns the number of items in the index.
+     * 
+     * @return The number of items. 
+     */
+    public int size() {
+        return this.count;
+    }
+
+    /**
+     * Removes all items from the index (typically before each frame is 
+     * drawn).  The storage is kept for reuse.
+     */
+    public void clear() {
+        Arrays.fill(this.ids, 0, this.count, null);
+        this.count = 0;
+        this.dirty = true;
+    }
+
+    /**
+     * Adds an item to the index.  This is called by {@link FXGraphics2D}
+     * but can also be used to add items that are not drawn with it.  
+     * Bounds that are not finite are ignored.
+     * 
+     * @param id  the item id ({@code null} not permitted).
+     * @param x  the x-coordinate of the bounds (in device space).
+     * @param y  the y-coordinate of the bounds (in device space).
+     * @param w  the width of the bounds.
+     * @param h  the height of the bounds.
+     */
+    public void add(Object id, double x, double y, double w, double h) {
+        if (id == null) {
+            throw new IllegalArgumentException("Null 'id' argument.");
+        }
+        if (!Double.isFinite(x + y + w + h)) {
+            return;
+        }
+        if (this.count == this.ids.length) {
+            this.ids = Arrays.copyOf(this.ids, this.count * 2);
+            this.bounds = Arrays.copyOf(this.bounds, this.count * 8);
+            this.stamps = Arrays.copyOf(this.stamps, this.count * 2);
+        }
+        this.ids[this.count] = id;
+        final int i = this.count * 4;
+        this.bounds[i] = Math.min(x, x + w);
+        this.bounds[i + 1] = Math.min(y, y + h);
+        this.bounds[i + 2] = Math.max(x, x + w);
+        this.bounds[i + 3] = Math.max(y, y + h);
+        this.count++;
+        this.dirty = true;
+    }
+
+    /**
+     * Returns the id of the topmost item with bounds that contain the 
+     * point {@code (x, y)}.
+     * 
+     * @param x  the x-coordinate (in device space).
+     * @param y  the y-coordinate (in device space).
+     * 
+     * @return The id, or {@code null} if there is no item at the point. 
+     */
+    public Object getIdAt(double x, double y) {
+        final int cell = cellAt(x, y);
+        if (cell < 0) {
+            return null;
+        }
+        for (int j = this.cellStarts[cell + 1] - 1; 
+                j >= this.cellStarts[cell]; j--) {
+            final int item = this.cellItems[j];
+            if (contains(item, x, y)) {
+                return this.ids[item];
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Returns the distinct ids of the items with bounds that contain the 
+     * point {@code (x, y)}, topmost first.
+     * 
+     * @param x  the x-coordinate (in device space).
+     * @param y  the y-coordinate (in device space).
+     * 
+     * @return A new list of ids (possibly empty, never {@code null}). 
+     */
+    public List<Object> getIdsAt(double x, double y) {
+        final List<Object> result = new ArrayList<>();
+        final int cell = cellAt(x, y);
+        if (cell < 0) {
+            return result;
+        }
+        final Set<Object> seen = new HashSet<>();
+        for (int j = this.cellStarts[cell + 1] - 1; 
+                j >= this.cellStarts[cell]; j--) {
+            final int item = this.cellItems[j];
+            if (contains(item, x, y) && seen.add(this.ids[item])) {
+                result.add(this.ids[item]);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Returns the distinct ids of the items with bounds that intersect the
+     * specified rectangle, topmost first.
+     * 
+     * @param area  the rectangle (in device space, {@code null} not 
+     *     permitted).
+     * 
+     * @return A new list of ids (possibly empty, never {@code null}). 
+     */
+    public List<Object> getIds(Rectangle2D area) {
+        final List<Object> result = new ArrayList<>();
+        build();
+        if (this.columns == 0) {
+            return result;
+        }
+        final double x0 = area.getMinX();
+        final double y0 = area.getMinY();
+        final double x1 = area.getMaxX();
+        final double y1 = area.getMaxY();
+        final int c0 = Math.max(column(x0), 0);
+        final int c1 = Math.min(column(x1), this.columns - 1);
+        final int r0 = Math.max(row(y0), 0);
+        final int r1 = Math.min(row(y1), this.rows - 1);
+        if (c0 > c1 || r0 > r1) {
+            return result;
+        }
+        if (++this.stamp == 0) {
+            Arrays.fill(this.stamps, 0);
+            this.stamp = 1;
+        }
+        // collect the distinct matching items, then sort them by drawing
+        // order
+        int[] matches = new int[16];
+        int matchCount = 0;
+        for (int r = r0; r <= r1; r++) {
+            for (int c = c0; c <= c1; c++) {
+                final int cell = r * this.columns + c;
+                for (int j = this.cellStarts[cell]; 
+                        j < this.cellStarts[cell + 1]; j++) {
+                    final int item = this.cellItems[j];
+                    if (this.stamps[item] == this.stamp) {
+                        continue;
+                    }
+                    this.stamps[item] = this.stamp;
+                    final int i = item * 4;
+                    if (this.bounds[i] <= x1 && this.bounds[i + 2] >= x0
+                            && this.bounds[i + 1] <= y1 
+                            && this.bounds[i + 3] >= y0) {
+                        if (matchCount == matches.length) {
+                            matches = Arrays.copyOf(matches, matchCount * 2);
+                        }
+                        matches[matchCount++] = item;
+                    }
+                }
+            }
+        }
+        Arrays.sort(matches, 0, matchCount);
+        final Set<Object> seen = new HashSet<>();
+        for (int j = matchCount - 1; j >= 0; j--) {
+            final Object id = this.ids[matches[j]];
+            if (seen.add(id)) {
+                result.add(id);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Returns {@code true} if the bounds of an item contain the point.
+     * 
+     * @param item  the item index.
+     * @param x  the x-coordinate.
+     * @param y  the y-coordinate.
+     * 
+     * @return A boolean. 
+     */
+    private boolean contains(int item, double x, double y) {
+        final int i = item * 4;
+        return x >= this.bounds[i] && x <= this.bounds[i + 2] 
+                && y >= this.bounds[i + 1] && y <= this.bounds[i + 3];
+    }
+
+    /**
+     * Returns the index of the grid cell that contains a point, building 
+     * the grid first if necessary.
+     * 
+     * @param x  the x-coordinate.
+     * @param y  the y-coordinate.
+     * 
+     * @return The cell index, or {@code -1} if the point is outside the 
+     *     grid.
+     */
+    private int cellAt(double x, double y) {
+        build();
+        final int c = column(x);
+        final int r = row(y);
+        if (c < 0 || c >= this.columns || r < 0 || r >= this.rows) {
+            return -1;
+        }
+        return r * this.columns + c;
+    }
+
+    private int column(double x) {
+        return (int) Math.floor((x - this.originX) / this.cellWidth);
+    }
+
+    private int row(double y) {
+        return (int) Math.floor((y - this.originY) / this.cellHeight);
+    }
+
+    /**
+     * Builds the grid if the items have changed since it was last built.
+     * The items are placed in the cells with a counting sort, so that the
+     * items in each cell stay in drawing order.
+     */
+    private void build() {
+        if (!this.dirty) {
+            return;
+        }
+        this.dirty = false;
+        double minX = Double.POSITIVE_INFINITY;
+        double minY = Double.POSITIVE_INFINITY;
+        double maxX = Double.NEGATIVE_INFINITY;
+        double maxY = Double.NEGATIVE_INFINITY;
+        for (int i = 0; i < this.count * 4; i += 4) {
+            minX = Math.min(minX, this.bounds[i]);
+            minY = Math.min(minY, this.bounds[i + 1]);
+            maxX = Math.max(maxX, this.bounds[i + 2]);
+            maxY = Math.max(maxY, this.bounds[i + 3]);
+        }
+        if (!(minX <= maxX && minY <= maxY) || Double.isInfinite(minX) 
+                || Double.isInfinite(minY) || Double.isInfinite(maxX) 
+                || Double.isInfinite(maxY)) {
+            this.columns = 0;
+            this.rows = 0;
+            return;
+        }
+        this.originX = minX;
+        this.originY = minY;
+        this.cellWidth = Math.max(this.cellSize, (maxX - minX) / MAX_CELLS);
+        this.cellHeight = Math.max(this.cellSize, (maxY - minY) / MAX_CELLS);
+        this.columns = Math.min(column(maxX) + 1, MAX_CELLS);
+        this.rows = Math.min(row(maxY) + 1, MAX_CELLS);
+        final int cellCount = this.columns * this.rows;
+        if (this.cellStarts.length < cellCount + 1) {
+            this.cellStarts = new int[cellCount + 1];
+        } else {
+            Arrays.fill(this.cellStarts, 0, cellCount + 1, 0);
+        }
+        // count the items in each cell (offset by one for the prefix sum)
+        final int[] starts = this.cellStarts;
+        int total = 0;
+        for (int item = 0; item < this.count; item++) {
+            final int i = item * 4;
+            final int c0 = clampColumn(this.bounds[i]);
+            final int c1 = clampColumn(this.bounds[i + 2]);
+            final int r0 = clampRow(this.bounds[i + 1]);
+            final int r1 = clampRow(this.bounds[i + 3]);
+            for (int r = r0; r <= r1; r++) {
+                for (int c = c0; c <= c1; c++) {
+                    starts[r * this.columns + c + 1]++;
+                }
+            }
+            total += (c1 - c0 + 1) * (r1 - r0 + 1);
+        }
+        for (int cell = 0; cell < cellCount; cell++) {
+            starts[cell + 1] += starts[cell];
+        }
+        if (this.cellItems.length < total) {
+            this.cellItems = new int[total];
+        }
+        // place the items
+        if (this.cellCursors.length < cellCount) {
+            this.cellCursors = new int[cellCount];
+        }
+        final int[] next = this.cellCursors;
+        System.arraycopy(starts, 0, next, 0, cellCount);
+        for (int item = 0; item < this.count; item++) {
+            final int i = item * 4;
+            final int c0 = clampColumn(this.bounds[i]);
+            final int c1 = clampColumn(this.bounds[i + 2]);
+            final int r0 = clampRow(this.bounds[i + 1]);
+            final int r1 = clampRow(this.bounds[i + 3]);
+            for (int r = r0; r <= r1; r++) {
+                for (int c = c0; c <= c1; c++) {
+                    this.cellItems[next[r * this.columns + c]++] = item;
+                }
+            }
+        }
+    }
+
+    private int clampColumn(double x) {
+        return Math.max(0, Math.min(column(x), this.columns - 1));
+    }
+
+    private int clampRow(double y) {
+        return Math.max(0, Math.min(row(y), this.rows - 1));
+    }
+
+}
@@ -0,0 +1,170 @@
+/* ============
+ * FXGraphics2D
+ * ============
+ * 
+ * (C)opyright 2014-present, by David Gilbert.
+ * 
+ * https://github.com/jfree/fxgraphics2d
+ *
+ * The FXGraphics2D class has been developed by David Gilbert for
+ * use in Orson Charts (https://github.com/jfree/orson-charts) and
+ * JFreeChart (http://www.jfree.org/jfreechart).  It may be useful for other
+ * code that uses the Graphics2D API provided by Java2D.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *   - Redistributions of source code must retain the above copyright
+ *     notice, this list of conditions and the following disclaimer.
+ *   - Redistributions in binary form must reproduce the above copyright
+ *     notice, this list of conditions and the following disclaimer in the
+ *     documentation and/or other materials provided with the distribution.
+ *   - Neither the name of JFree.org nor the names of its contributors may
+ *     be used to endorse or promote products derived from this software
+ *     without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF
+ * THE POSSIBILITY OF SUCH DAMAGE.
+ * 
+ */
+package org.jfree.fx;
+
+import java.awt.Font;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import javafx.scene.text.FontPosture;
+import javafx.scene.text.FontWeight;
+
+/**
+ * A cache that maps AWT fonts to JavaFX fonts.  Resolving a JavaFX font 
+ * (via {@code javafx.scene.text.Font.font()}) involves a family lookup in 
+ * the toolkit, so the result is retained for each distinct AWT font.  The 
+ * most recently resolved font is checked by identity before the (attribute
+ * based) map lookup, since the same font instance is often set repeatedly.
+ * The cache is cleared if it reaches its maximum size.
+ */
+final class FontCache {
+
+    /** A cache that is shared by all {@code FXGraphics2D} instances. */
+    static final FontCache SHARED = new FontCache(512);
+
+    /** The maximum number of fonts in the cache before it is cleared. */
+    private final int maxSize;
+
+    /** The resolved fonts. */
+    private final Map<Font, javafx.scene.text.Font> map 
+            = new ConcurrentHashMap<>();
+
+    /** The most recently resolved font. */
+    private volatile Entry last;
+
+    /**
+     * Creates a new cache.
+     * 
+     * @param maxSize  the maximum number of fonts in the cache.
+     */
+    FontCache(int maxSize) {
+        this.maxSize = maxSize;
+    }
+
+    /**
+     * Returns the JavaFX font that corresponds to the specified AWT font.
+     * 
+     * @param font  the AWT font ({@code null} not permitted).
+     * 
+     * @return The JavaFX font (never {@code null}). 
+     */
+    javafx.scene.text.Font get(Font font) {
+        Entry e = this.last;
+        if (e != null && e.font == font) {
+            return e.fxFont;
+        }
+        javafx.scene.text.Font result = this.map.get(font);
+        if (result == null) {
+            if (this.map.size() >= this.maxSize) {
+                this.map.clear();
+            }
+            result = createFont(font);
+            this.map.put(font, result);
+        }
+        this.last = new Entry(font, result);
+        return result;
+    }
+
+    /**
+     * Removes all fonts from the cache.
+     */
+    void clear() {
+        this.map.clear();
+        this.last = null;
+    }
+
+    /**
+     * Returns the number of fonts in the cache.
+     * 
+     * @return The number of fonts. 
+     */
+    int size() {
+        return this.map.size();
+    }
+
+    /**
+     * Creates the JavaFX font that corresponds to the specified AWT font.
+     * 
+     * @param font  the AWT font ({@code null} not permitted).
+     * 
+     * @return The JavaFX font (never {@code null}). 
+     */
+    private static javafx.scene.text.Font createFont(Font font) {
+        FontWeight weight = font.isBold() ? FontWeight.BOLD : FontWeight.NORMAL;
+        FontPosture posture = font.isItalic() 
+                ? FontPosture.ITALIC : FontPosture.REGULAR;
+        return javafx.scene.text.Font.font(toJavaFXFamily(font.getFamily()), 
+                weight, posture, font.getSize2D());
+    }
+
+    /**
+     * Maps an AWT font family to a JavaFX font family.  The AWT logical 
+     * families "Dialog" and "DialogInput" are not recognised by JavaFX, so 
+     * they are mapped to the equivalent "SansSerif" and "Monospaced" 
+     * families.
+     * 
+     * @param family  the AWT family name ({@code null} not permitted).
+     * 
+     * @return The JavaFX family name. 
+     */
+    static String toJavaFXFamily(String family) {
+        switch (family) {
+            case Font.DIALOG:
+                return Font.SANS_SERIF;
+            case Font.DIALOG_INPUT:
+                return Font.MONOSPACED;
+            default:
+                return family;
+        }
+    }
+
+    /**
+     * An AWT font and the corresponding JavaFX font.
+     */
+    private static final class Entry {
+
+        final Font font;
+
+        final javafx.scene.text.Font fxFont;
+
+        Entry(Font font, javafx.scene.text.Font fxFont) {
+            this.font = font;
+            this.fxFont = fxFont;
+        }
+    }
+
+}
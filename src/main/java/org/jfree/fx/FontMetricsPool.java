@@ -0,0 +1,120 @@
+/* ============
+ * FXGraphics2D
+ * ============
+ * 
+ * (C)opyright 2014-present, by David Gilbert.
+ * 
+ * https://github.com/jfree/fxgraphics2d
+ *
+ * The FXGraphics2D class has been developed by David Gilbert for
+ * use in Orson Charts (https://github.com/jfree/orson-charts) and
+ * JFreeChart (http://www.jfree.org/jfreechart).  It may be useful for other
+ * code that uses the Graphics2D API provided by Java2D.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *   - Redistributions of source code must retain the above copyright
+ *     notice, this list of conditions and the following disclaimer.
+ *   - Redistributions in binary form must reproduce the above copyright
+ *     notice, this list of conditions and the following disclaimer in the
+ *     documentation and/or other materials provided with the distribution.
+ *   - Neither the name of JFree.org nor the names of its contributors may
+ *     be used to endorse or promote products derived from this software
+ *     without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF
+ * THE POSSIBILITY OF SUCH DAMAGE.
+ * 
+ */
+package org.jfree.fx;
+
+import java.awt.Font;
+import java.awt.FontMetrics;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * A process-wide pool of font metrics, so that all {@code FXGraphics2D} 
+ * instances (including the many short-lived instances returned by 
+ * {@code create()}) share the same metrics objects.  There is a separate
+ * pool for JavaFX metrics and Java2D metrics (see 
+ * {@link FXHints#KEY_USE_FX_FONT_METRICS}), and each pool is cleared if it
+ * reaches its maximum size.
+ */
+final class FontMetricsPool {
+
+    /** The maximum number of metrics in each pool before it is cleared. */
+    private static final int MAX_SIZE = 256;
+
+    /** The JavaFX font metrics. */
+    private static final Map<Font, FontMetrics> FX_METRICS 
+            = new ConcurrentHashMap<>();
+
+    /** The Java2D font metrics. */
+    private static final Map<Font, FontMetrics> JAVA2D_METRICS 
+            = new ConcurrentHashMap<>();
+
+    /** A graphics instance for a hidden image, used for Java2D metrics. */
+    private static Graphics2D java2DGraphics;
+
+    private FontMetricsPool() {
+        // no need to instantiate this
+    }
+
+    /**
+     * Returns the font metrics for the specified font.
+     * 
+     * @param font  the font ({@code null} not permitted).
+     * @param fxMetrics  a flag that selects JavaFX metrics (otherwise 
+     *     Java2D metrics are returned).
+     * 
+     * @return The font metrics (never {@code null}). 
+     */
+    static FontMetrics get(Font font, boolean fxMetrics) {
+        Map<Font, FontMetrics> pool = fxMetrics ? FX_METRICS : JAVA2D_METRICS;
+        FontMetrics result = pool.get(font);
+        if (result == null) {
+            if (pool.size() >= MAX_SIZE) {
+                pool.clear();
+            }
+            result = fxMetrics ? new FXFontMetrics(font) 
+                    : createJava2DMetrics(font);
+            pool.put(font, result);
+        }
+        return result;
+    }
+
+    /**
+     * Removes all metrics from the pools.
+     */
+    static void clear() {
+        FX_METRICS.clear();
+        JAVA2D_METRICS.clear();
+    }
+
+    private static synchronized FontMetrics createJava2DMetrics(Font font) {
+        // be lazy about creating the underlying objects...
+        if (java2DGraphics == null) {
+            BufferedImage image = new BufferedImage(10, 10, 
+                    BufferedImage.TYPE_INT_RGB);
+            java2DGraphics = image.createGraphics();
+            java2DGraphics.setRenderingHint(
+                    RenderingHints.KEY_FRACTIONALMETRICS,
+                    RenderingHints.VALUE_FRACTIONALMETRICS_ON);
+        }
+        return java2DGraphics.getFontMetrics(font);
+    }
+
+}
@@ -37,16 +37,21 @@
  */
 package org.jfree.fx;
 
-import java.awt.Color;
-import java.awt.Font;
-import java.awt.Paint;
-import java.awt.Stroke;
 import java.awt.geom.AffineTransform;
 import java.util.ArrayList;
+import java.util.Arrays;
 import javafx.scene.canvas.GraphicsContext;
+import javafx.scene.effect.BlendMode;
+import javafx.scene.paint.Paint;
+import javafx.scene.shape.FillRule;
 
 /**
- * Clip / save / restore is global to a graphic context
+ * Clip / save / restore is global to a graphic context.  This class also
+ * keeps a record of the attributes that have been applied to the graphics
+ * context, so that {@link FXGraphics2D} (and any copies created from it) 
+ * can defer attribute changes until drawing takes place, and then only 
+ * push the attributes that differ from the ones already in place.  A 
+ * {@code null} (or {@code NaN}) value means the attribute is unknown.
  */
 final class GCStateHandler {
 
@@ -60,6 +65,83 @@ final class GCStateHandler {
     /** stack of saved states */
     private final ArrayList<GCState> states = new ArrayList<>(8);
 
+    /** 
+     * The instance that last synchronized its attributes with the graphics
+     * context (if another instance has drawn since then, all attributes 
+     * must be checked again).
+     */
+    FXGraphics2D owner;
+
+    /** The fill paint in the graphics context. */
+    Paint fill;
+
+    /** The stroke paint in the graphics context. */
+    Paint stroke;
+
+    /** The line attributes in the graphics context. */
+    LineAttributes lineAttributes;
+
+    /** The font in the graphics context. */
+    javafx.scene.text.Font font;
+
+    /** The global alpha in the graphics context. */
+    double globalAlpha = Double.NaN;
+
+    /** The global blend mode in the graphics context. */
+    BlendMode blendMode;
+
+    /** The fill rule in the graphics context. */
+    FillRule fillRule;
+
+    /** 
+     * The number of drawing operations that were skipped because they 
+     * would not be visible (for all instances sharing this handler).
+     */
+    long culledCount;
+
+    /** 
+     * The number of drawing operations that have been sent to the graphics
+     * context (used to detect whether anything has been drawn between two 
+     * operations).
+     */
+    long drawCount;
+
+    /** 
+     * The generation stamp for each device pixel that has been drawn by the
+     * level-of-detail mode (created lazily, shared by all instances that 
+     * draw to the canvas).
+     */
+    private int[] pixelStamps;
+
+    /** The width of the canvas that {@code pixelStamps} was created for. */
+    private int pixelStampsWidth;
+
+    /** The current generation for {@code pixelStamps}. */
+    private int pixelGeneration;
+
+    /** 
+     * The draw count after the last level-of-detail pixel was drawn.
+     */
+    long pixelDrawCount = -1;
+
+    /** 
+     * The coordinates (x1, y1, x2, y2) of the line segments that are held
+     * in the current batch.
+     */
+    private double[] lines = new double[64];
+
+    /** The number of line segments in the current batch. */
+    int lineCount;
+
+    /** 
+     * The bounds (x, y, w, h) of the rectangles that are held in the 
+     * current batch.
+     */
+    private double[] rects = new double[64];
+
+    /** The number of rectangles in the current batch. */
+    int rectCount;
+
     GCStateHandler(final GraphicsContext gc) {
         this.gc = gc;
     }
@@ -73,20 +155,149 @@ final class GCStateHandler {
         return (getSaveCount() > saveCount);
     }
 
+    /**
+     * Starts a new generation of level-of-detail pixel stamps, so that no
+     * pixel counts as drawn (called when the paint or clip changes).
+     */
+    void newPixelGeneration() {
+        this.pixelGeneration++;
+    }
+
+    /**
+     * Stamps a device pixel that is drawn by the level-of-detail mode, 
+     * starting a new generation first if anything else has been drawn 
+     * since the last pixel.
+     * 
+     * @param px  the x-coordinate of the pixel.
+     * @param py  the y-coordinate of the pixel.
+     * @param width  the canvas width (in pixels).
+     * @param height  the canvas height (in pixels).
+     * 
+     * @return {@code true} if the pixel was already stamped in the current
+     *     generation (so drawing it again would make no difference).
+     */
+    boolean stampPixel(int px, int py, int width, int height) {
+        if (this.pixelStamps == null || this.pixelStampsWidth != width 
+                || this.pixelStamps.length != width * height) {
+            this.pixelStamps = new int[width * height];
+            this.pixelStampsWidth = width;
+            this.pixelGeneration = 1;
+        } else if (this.drawCount != this.pixelDrawCount) {
+            // something else has been drawn since the last pixel
+            this.pixelGeneration++;
+        }
+        if (this.pixelGeneration == 0) {
+            // the stamps have wrapped around
+            Arrays.fill(this.pixelStamps, 0);
+            this.pixelGeneration = 1;
+        }
+        final int i = py * width + px;
+        if (this.pixelStamps[i] == this.pixelGeneration) {
+            return true;
+        }
+        this.pixelStamps[i] = this.pixelGeneration;
+        return false;
+    }
+
+    /**
+     * Adds a line segment to the current batch.  The state of the graphics
+     * context must not change until the batch is flushed.
+     * 
+     * @param x1  the x-coordinate of the start point.
+     * @param y1  the y-coordinate of the start point.
+     * @param x2  the x-coordinate of the end point.
+     * @param y2  the y-coordinate of the end point.
+     */
+    void addLine(double x1, double y1, double x2, double y2) {
+        int i = this.lineCount * 4;
+        if (i == this.lines.length) {
+            this.lines = Arrays.copyOf(this.lines, i * 2);
+        }
+        this.lines[i] = x1;
+        this.lines[i + 1] = y1;
+        this.lines[i + 2] = x2;
+        this.lines[i + 3] = y2;
+        this.lineCount++;
+    }
+
+    /**
+     * Adds a rectangle to the current batch.  The state of the graphics
+     * context (including the fill rule, which should be 
+     * {@code FillRule.NON_ZERO}) must not change until the batch is 
+     * flushed.
+     * 
+     * @param x  the x-coordinate.
+     * @param y  the y-coordinate.
+     * @param w  the width.
+     * @param h  the height.
+     */
+    void addRect(double x, double y, double w, double h) {
+        int i = this.rectCount * 4;
+        if (i == this.rects.length) {
+            this.rects = Arrays.copyOf(this.rects, i * 2);
+        }
+        this.rects[i] = x;
+        this.rects[i + 1] = y;
+        this.rects[i + 2] = w;
+        this.rects[i + 3] = h;
+        this.rectCount++;
+    }
+
+    /**
+     * Draws any batched line segments or rectangles to the graphics context
+     * (as a single path) and clears the batch.
+     */
+    void flush() {
+        if (this.lineCount > 0) {
+            this.gc.beginPath();
+            final double[] c = this.lines;
+            for (int i = 0; i < this.lineCount * 4; i += 4) {
+                this.gc.moveTo(c[i], c[i + 1]);
+                this.gc.lineTo(c[i + 2], c[i + 3]);
+            }
+            this.gc.stroke();
+            this.lineCount = 0;
+        }
+        if (this.rectCount > 0) {
+            this.gc.beginPath();
+            final double[] r = this.rects;
+            for (int i = 0; i < this.rectCount * 4; i += 4) {
+                final double x = r[i];
+                final double y = r[i + 1];
+                this.gc.moveTo(x, y);
+                this.gc.lineTo(x + r[i + 2], y);
+                this.gc.lineTo(x + r[i + 2], y + r[i + 3]);
+                this.gc.lineTo(x, y + r[i + 3]);
+                this.gc.closePath();
+            }
+            this.gc.fill();
+            this.rectCount = 0;
+        }
+    }
+
     int getSaveCount() {
         return this.saveCount;
     }
 
-    int save(final GCState state) {
+    /**
+     * Saves the state of the graphics context.
+     * 
+     * @param transform  the transform in the graphics context.
+     * 
+     * @return The save count before the state was saved.
+     */
+    int save(final AffineTransform transform) {
         if (TRACE) {
             System.out.println("gc.save:  in: " + this);
         }
 
+        flush();
+
         // save current clip:
         this.gc.save();
 
         // save state in stack at current restorePoint:
-        states.add(state);
+        states.add(new GCState(this, transform));
 
         final int restore = this.saveCount++;
 
@@ -102,11 +313,14 @@ final class GCStateHandler {
         }
         GCState state = null;
 
+        flush();
         if (isStateSavedSince(0)) {
             final int pos = --this.saveCount;
             this.gc.restore(); // get back original clip
             if (pos >= 0) {
                 state = states.remove(pos);
+                // the attributes are restored along with the clip
+                state.restoreTo(this);
             }
         }
         if (TRACE) {
@@ -132,27 +346,53 @@ final class GCStateHandler {
 
     public final static class GCState {
 
-        final Color savedColor;
-        final Paint savedPaint;
-        final Stroke savedStroke;
-        final Font savedFont;
+        final Paint savedFill;
+        final Paint savedStroke;
+        final LineAttributes savedLineAttributes;
+        final javafx.scene.text.Font savedFont;
+        final double savedGlobalAlpha;
+        final BlendMode savedBlendMode;
+        final FillRule savedFillRule;
         final AffineTransform savedTransform;
 
-        public GCState(Color color, Paint paint, Stroke stroke, Font font, AffineTransform transform) {
-            this.savedColor = color;
-            this.savedPaint = paint;
-            this.savedStroke = stroke;
-            this.savedFont = font;
+        GCState(GCStateHandler handler, AffineTransform transform) {
+            this.savedFill = handler.fill;
+            this.savedStroke = handler.stroke;
+            this.savedLineAttributes = handler.lineAttributes;
+            this.savedFont = handler.font;
+            this.savedGlobalAlpha = handler.globalAlpha;
+            this.savedBlendMode = handler.blendMode;
+            this.savedFillRule = handler.fillRule;
             this.savedTransform = new AffineTransform(transform);
         }
 
+        /**
+         * Copies the saved attributes back to the handler, and clears the 
+         * owner so that every instance checks its attributes again.
+         * 
+         * @param handler  the handler.
+         */
+        void restoreTo(GCStateHandler handler) {
+            handler.fill = this.savedFill;
+            handler.stroke = this.savedStroke;
+            handler.lineAttributes = this.savedLineAttributes;
+            handler.font = this.savedFont;
+            handler.globalAlpha = this.savedGlobalAlpha;
+            handler.blendMode = this.savedBlendMode;
+            handler.fillRule = this.savedFillRule;
+            handler.owner = null;
+        }
+
         @Override
         public String toString() {
             return "GCState{"
-                    + "savedColor=" + savedColor
-                    + ", savedPaint=" + savedPaint
+                    + "savedFill=" + savedFill
                     + ", savedStroke=" + savedStroke
+                    + ", savedLineAttributes=" + savedLineAttributes
                     + ", savedFont=" + savedFont
+                    + ", savedGlobalAlpha=" + savedGlobalAlpha
+                    + ", savedBlendMode=" + savedBlendMode
+                    + ", savedFillRule=" + savedFillRule
                     + ", savedTransform=" + savedTransform + '}';
         }
     }
@@ -0,0 +1,198 @@
+/* ============
+ * FXGraphics2D
+ * ============
+ * 
+ * (C)opyright 2014-present, by David Gilbert.
+ * 
+ * https://github.com/jfree/fxgraphics2d
+ *
+ * The FXGraphics2D class has been developed by David Gilbert for
+ * use in Orson Charts (https://github.com/jfree/orson-charts) and
+ * JFreeChart (http://www.jfree.org/jfreechart).  It may be useful for other
+ * code that uses the Graphics2D API provided by Java2D.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *   - Redistributions of source code must retain the above copyright
+ *     notice, this list of conditions and the following disclaimer.
+ *   - Redistributions in binary form must reproduce the above copyright
+ *     notice, this list of conditions and the following disclaimer in the
+ *     documentation and/or other materials provided with the distribution.
+ *   - Neither the name of JFree.org nor the names of its contributors may
+ *     be used to endorse or promote products derived from this software
+ *     without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF
+ * THE POSSIBILITY OF SUCH DAMAGE.
+ * 
+ */
+package org.jfree.fx;
+
+import java.awt.Font;
+import java.awt.font.GlyphVector;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * A bounded cache of glyph outlines, keyed by font and glyph code.  The 
+ * outlines are relative to the glyph origin, so they can be replayed at
+ * any glyph position with a translation.  The least recently used outlines
+ * are evicted when the total segment count exceeds the limit.
+ */
+final class GlyphOutlineCache {
+
+    /** The default limit for the total number of cached segments. */
+    static final int DEFAULT_MAX_SEGMENTS = 200000;
+
+    /** A cache that is shared by all {@code FXGraphics2D} instances. */
+    static final GlyphOutlineCache SHARED 
+            = new GlyphOutlineCache(DEFAULT_MAX_SEGMENTS);
+
+    /** The limit for the total number of cached segments. */
+    private final int maxSegments;
+
+    /** The cached outlines, in access order. */
+    private final LinkedHashMap<Key, PackedPath> map;
+
+    /** The key used for lookups. */
+    private final Key lookupKey = new Key();
+
+    /** The total number of segments in the cached outlines. */
+    private int segmentCount;
+
+    /** The number of lookups that found a cached outline. */
+    private long hitCount;
+
+    /** The number of lookups that did not find a cached outline. */
+    private long missCount;
+
+    /**
+     * Creates a new cache.
+     * 
+     * @param maxSegments  the limit for the total number of segments in the
+     *     cached outlines.
+     */
+    GlyphOutlineCache(int maxSegments) {
+        this.maxSegments = maxSegments;
+        this.map = new LinkedHashMap<>(256, 0.75f, true);
+    }
+
+    /**
+     * Returns the outline of a glyph in a glyph vector, relative to the 
+     * glyph origin.  The glyph vector must not have glyph transforms.
+     * 
+     * @param gv  the glyph vector ({@code null} not permitted).
+     * @param index  the glyph index.
+     * @param originX  the x-coordinate of the glyph origin within the glyph
+     *     vector.
+     * @param originY  the y-coordinate of the glyph origin within the glyph
+     *     vector.
+     * 
+     * @return The outline (never {@code null}). 
+     */
+    synchronized PackedPath get(GlyphVector gv, int index, float originX, 
+            float originY) {
+        PackedPath outline = this.map.get(this.lookupKey.set(gv.getFont(), 
+                gv.getGlyphCode(index)));
+        if (outline != null) {
+            this.hitCount++;
+            return outline;
+        }
+        this.missCount++;
+        outline = PackedPath.of(gv.getGlyphOutline(index, -originX, 
+                -originY));
+        int cost = outline.getSegmentCount();
+        if (cost > this.maxSegments) {
+            return outline;
+        }
+        this.map.put(new Key().set(this.lookupKey.font, 
+                this.lookupKey.glyphCode), outline);
+        this.segmentCount += cost;
+        Iterator<PackedPath> iterator = this.map.values().iterator();
+        while (this.segmentCount > this.maxSegments) {
+            this.segmentCount -= iterator.next().getSegmentCount();
+            iterator.remove();
+        }
+        return outline;
+    }
+
+    /**
+     * Removes all entries from the cache.
+     */
+    synchronized void clear() {
+        this.map.clear();
+        this.segmentCount = 0;
+    }
+
+    /**
+     * Returns the number of entries in the cache.
+     * 
+     * @return The number of entries. 
+     */
+    synchronized int size() {
+        return this.map.size();
+    }
+
+    /**
+     * Returns the number of lookups that found a cached outline.
+     * 
+     * @return The hit count. 
+     */
+    synchronized long getHitCount() {
+        return this.hitCount;
+    }
+
+    /**
+     * Returns the number of lookups that did not find a cached outline.
+     * 
+     * @return The miss count. 
+     */
+    synchronized long getMissCount() {
+        return this.missCount;
+    }
+
+    /**
+     * The cache key (a font and a glyph code).
+     */
+    private static final class Key {
+
+        Font font;
+
+        int glyphCode;
+
+        Key set(Font font, int glyphCode) {
+            this.font = font;
+            this.glyphCode = glyphCode;
+            return this;
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * this.font.hashCode() + this.glyphCode;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (obj == this) {
+                return true;
+            }
+            if (!(obj instanceof Key)) {
+                return false;
+            }
+            Key that = (Key) obj;
+            return this.glyphCode == that.glyphCode 
+                    && this.font.equals(that.font);
+        }
+    }
+
+}
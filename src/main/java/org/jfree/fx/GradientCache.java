@@ -0,0 +1,474 @@
+/* ============
+ * FXGraphics2D
+ * ============
+ * 
+ * (C)opyright 2014-present, by David Gilbert.
+ * 
+ * https://github.com/jfree/fxgraphics2d
+ *
+ * The FXGraphics2D class has been developed by David Gilbert for
+ * use in Orson Charts (https://github.com/jfree/orson-charts) and
+ * JFreeChart (http://www.jfree.org/jfreechart).  It may be useful for other
+ * code that uses the Graphics2D API provided by Java2D.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *   - Redistributions of source code must retain the above copyright
+ *     notice, this list of conditions and the following disclaimer.
+ *   - Redistributions in binary form must reproduce the above copyright
+ *     notice, this list of conditions and the following disclaimer in the
+ *     documentation and/or other materials provided with the distribution.
+ *   - Neither the name of JFree.org nor the names of its contributors may
+ *     be used to endorse or promote products derived from this software
+ *     without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF
+ * THE POSSIBILITY OF SUCH DAMAGE.
+ * 
+ */
+package org.jfree.fx;
+
+import java.awt.Color;
+import java.awt.GradientPaint;
+import java.awt.LinearGradientPaint;
+import java.awt.MultipleGradientPaint;
+import java.awt.Paint;
+import java.awt.RadialGradientPaint;
+import java.awt.geom.Point2D;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import javafx.scene.paint.CycleMethod;
+import javafx.scene.paint.LinearGradient;
+import javafx.scene.paint.RadialGradient;
+import javafx.scene.paint.Stop;
+
+/**
+ * A bounded (least recently used) cache of JavaFX gradients, keyed by a 
+ * fingerprint of the AWT gradient paint they were converted from.  The 
+ * fingerprint is held in a mutable {@link Key} so that callers can reuse 
+ * one instance for lookups, and only a cache miss creates new objects.
+ * A single instance is shared by all {@link FXGraphics2D} instances.
+ */
+final class GradientCache {
+
+    /** The shared instance. */
+    static final GradientCache SHARED = new GradientCache(256);
+
+    /** The maximum number of gradients in the cache. */
+    private final int capacity;
+
+    /** The cached gradients. */
+    private final LinkedHashMap<Key, javafx.scene.paint.Paint> map;
+
+    /** The number of lookups that found a cached gradient. */
+    private long hitCount;
+
+    /** The number of lookups that required a new gradient to be created. */
+    private long missCount;
+
+    /**
+     * Creates a new cache.
+     *
+     * @param capacity  the maximum number of gradients to cache.
+     */
+    GradientCache(int capacity) {
+        this.capacity = capacity;
+        this.map = new LinkedHashMap<Key, javafx.scene.paint.Paint>(16, 0.75f,
+                true) {
+            @Override
+            protected boolean removeEldestEntry(
+                    Map.Entry<Key, javafx.scene.paint.Paint> eldest) {
+                return size() > GradientCache.this.capacity;
+            }
+        };
+    }
+
+    /**
+     * Returns {@code true} if the specified paint is a gradient that can be
+     * described by a {@link Key}, and {@code false} otherwise.
+     *
+     * @param paint  the paint ({@code null} permitted).
+     *
+     * @return A boolean.
+     */
+    static boolean isSupported(Paint paint) {
+        return paint instanceof GradientPaint
+                || paint instanceof LinearGradientPaint
+                || paint instanceof RadialGradientPaint;
+    }
+
+    /**
+     * Returns the JavaFX gradient for the specified key, creating it if it 
+     * is not already in the cache.  The key is not retained by the cache, so
+     * the caller is free to reuse it.
+     *
+     * @param key  the key ({@code null} not permitted).
+     *
+     * @return A JavaFX paint (never {@code null}).
+     */
+    synchronized javafx.scene.paint.Paint get(Key key) {
+        javafx.scene.paint.Paint result = this.map.get(key);
+        if (result != null) {
+            this.hitCount++;
+            return result;
+        }
+        this.missCount++;
+        result = key.createPaint();
+        this.map.put(key.copy(), result);
+        return result;
+    }
+
+    /**
+     * Returns the number of gradients in the cache.
+     *
+     * @return The number of gradients.
+     */
+    synchronized int size() {
+        return this.map.size();
+    }
+
+    /**
+     * Returns the number of lookups that were satisfied from the cache.
+     *
+     * @return The hit count.
+     */
+    synchronized long getHitCount() {
+        return this.hitCount;
+    }
+
+    /**
+     * Returns the number of lookups that required a new gradient to be 
+     * created.
+     *
+     * @return The miss count.
+     */
+    synchronized long getMissCount() {
+        return this.missCount;
+    }
+
+    /**
+     * A fingerprint of a gradient paint.  Only the attributes that are used
+     * when converting the paint to JavaFX are included (so two AWT paints
+     * with equal keys are guaranteed to produce equal JavaFX gradients).
+     * Instances are mutable so they can be reused for lookups, but a key 
+     * must not be modified after it has been passed to the cache (the cache 
+     * stores its own copy).
+     */
+    static final class Key {
+
+        /** The key type for a linear gradient. */
+        private static final int LINEAR = 0;
+
+        /** The key type for a radial gradient. */
+        private static final int RADIAL = 1;
+
+        /** The gradient type. */
+        private int type;
+
+        /** The JavaFX cycle method. */
+        private CycleMethod cycleMethod;
+
+        /** Are the coordinates relative to the bounds of the shape? */
+        private boolean proportional;
+
+        /** 
+         * The start point (linear) or the center point (radial). 
+         */
+        private double x1, y1;
+
+        /** 
+         * The end point (linear) or the focus point (radial). 
+         */
+        private double x2, y2;
+
+        /** The radius (radial gradients only). */
+        private double radius;
+
+        /** The number of stops. */
+        private int stopCount;
+
+        /** The stop fractions (the array may be longer than stopCount). */
+        private float[] fractions = new float[2];
+
+        /** The stop colors as ARGB values. */
+        private int[] colors = new int[2];
+
+        /** The hash code (calculated whenever the key is updated). */
+        private int hash;
+
+        /** 
+         * The paint that this key was last set from ({@code null} for a 
+         * proportional key).
+         */
+        private Paint source;
+
+        /**
+         * Creates a new key that must be updated via one of the 
+         * {@code set()} methods before use.
+         */
+        Key() {
+        }
+
+        /**
+         * Updates this key to describe the specified paint.
+         *
+         * @param paint  the paint (see {@link #isSupported(Paint)}).
+         */
+        void set(Paint paint) {
+            this.source = paint;
+            this.proportional = false;
+            if (paint instanceof GradientPaint) {
+                GradientPaint gp = (GradientPaint) paint;
+                this.type = LINEAR;
+                this.cycleMethod = gp.isCyclic() ? CycleMethod.REFLECT
+                        : CycleMethod.NO_CYCLE;
+                Point2D p1 = gp.getPoint1();
+                Point2D p2 = gp.getPoint2();
+                this.x1 = p1.getX();
+                this.y1 = p1.getY();
+                this.x2 = p2.getX();
+                this.y2 = p2.getY();
+                this.radius = 0.0;
+                this.stopCount = 2;
+                this.fractions[0] = 0f;
+                this.fractions[1] = 1f;
+                this.colors[0] = gp.getColor1().getRGB();
+                this.colors[1] = gp.getColor2().getRGB();
+            } else if (paint instanceof LinearGradientPaint) {
+                LinearGradientPaint lgp = (LinearGradientPaint) paint;
+                this.type = LINEAR;
+                Point2D start = lgp.getStartPoint();
+                Point2D end = lgp.getEndPoint();
+                this.x1 = start.getX();
+                this.y1 = start.getY();
+                this.x2 = end.getX();
+                this.y2 = end.getY();
+                this.radius = 0.0;
+                setStops(lgp);
+            } else if (paint instanceof RadialGradientPaint) {
+                RadialGradientPaint rgp = (RadialGradientPaint) paint;
+                this.type = RADIAL;
+                Point2D center = rgp.getCenterPoint();
+                Point2D focus = rgp.getFocusPoint();
+                this.x1 = center.getX();
+                this.y1 = center.getY();
+                this.x2 = focus.getX();
+                this.y2 = focus.getY();
+                this.radius = rgp.getRadius();
+                setStops(rgp);
+            } else {
+                throw new IllegalArgumentException("Unsupported paint " 
+                        + paint);
+            }
+            this.hash = calculateHashCode();
+        }
+
+        /**
+         * Returns the paint that this key was last set from (see 
+         * {@link #set(java.awt.Paint)}).  Since the gradient paints are 
+         * immutable, the key does not need to be set again for the same 
+         * paint instance (which avoids the copies made by the paint 
+         * getters).
+         *
+         * @return The paint (possibly {@code null}).
+         */
+        Paint getSource() {
+            return this.source;
+        }
+
+        /**
+         * Updates the cycle method and stops from a multiple gradient paint.
+         *
+         * @param mgp  the paint.
+         */
+        private void setStops(MultipleGradientPaint mgp) {
+            this.cycleMethod = toJavaFXCycleMethod(mgp.getCycleMethod());
+            // both getters return a new array, so we can keep the fractions
+            this.fractions = mgp.getFractions();
+            Color[] awtColors = mgp.getColors();
+            this.stopCount = awtColors.length;
+            if (this.colors.length < this.stopCount) {
+                this.colors = new int[this.stopCount];
+            }
+            for (int i = 0; i < this.stopCount; i++) {
+                this.colors[i] = awtColors[i].getRGB();
+            }
+        }
+
+        /**
+         * Updates this key to describe a proportional version of a linear 
+         * gradient, where the coordinates are expressed relative to the 
+         * specified bounds.  Gradients that are the same shape relative to 
+         * different bounds will then have equal keys.
+         *
+         * @param key  the key for an absolute linear gradient.
+         * @param x  the x-coordinate of the bounds.
+         * @param y  the y-coordinate of the bounds.
+         * @param w  the width of the bounds (must be positive).
+         * @param h  the height of the bounds (must be positive).
+         */
+        void setProportional(Key key, double x, double y, double w, 
+                double h) {
+            this.source = null;
+            this.type = key.type;
+            this.cycleMethod = key.cycleMethod;
+            this.proportional = true;
+            this.x1 = (key.x1 - x) / w;
+            this.y1 = (key.y1 - y) / h;
+            this.x2 = (key.x2 - x) / w;
+            this.y2 = (key.y2 - y) / h;
+            this.radius = key.radius;
+            this.stopCount = key.stopCount;
+            if (this.fractions.length < this.stopCount) {
+                this.fractions = new float[this.stopCount];
+            }
+            if (this.colors.length < this.stopCount) {
+                this.colors = new int[this.stopCount];
+            }
+            System.arraycopy(key.fractions, 0, this.fractions, 0, 
+                    this.stopCount);
+            System.arraycopy(key.colors, 0, this.colors, 0, this.stopCount);
+            this.hash = calculateHashCode();
+        }
+
+        /**
+         * Returns {@code true} if this key describes a linear gradient.
+         *
+         * @return A boolean.
+         */
+        boolean isLinear() {
+            return this.type == LINEAR;
+        }
+
+        /**
+         * Returns a copy of this key with arrays that are trimmed to size.
+         *
+         * @return A copy of this key.
+         */
+        Key copy() {
+            Key result = new Key();
+            result.type = this.type;
+            result.cycleMethod = this.cycleMethod;
+            result.proportional = this.proportional;
+            result.x1 = this.x1;
+            result.y1 = this.y1;
+            result.x2 = this.x2;
+            result.y2 = this.y2;
+            result.radius = this.radius;
+            result.stopCount = this.stopCount;
+            result.fractions = Arrays.copyOf(this.fractions, this.stopCount);
+            result.colors = Arrays.copyOf(this.colors, this.stopCount);
+            result.hash = this.hash;
+            return result;
+        }
+
+        /**
+         * Creates the JavaFX gradient described by this key.
+         *
+         * @return A JavaFX paint (never {@code null}).
+         */
+        javafx.scene.paint.Paint createPaint() {
+            Stop[] stops = new Stop[this.stopCount];
+            for (int i = 0; i < this.stopCount; i++) {
+                stops[i] = new Stop(this.fractions[i], 
+                        ColorCache.SHARED.get(this.colors[i]));
+            }
+            if (this.type == RADIAL) {
+                double focusDistance = Point2D.distance(this.x1, this.y1, 
+                        this.x2, this.y2);
+                double focusAngle = 0.0;
+                if (focusDistance != 0.0) {
+                    focusAngle = Math.atan2(this.y2 - this.y1, 
+                            this.x2 - this.x1);
+                }
+                return new RadialGradient(Math.toDegrees(focusAngle), 
+                        focusDistance / this.radius, this.x1, this.y1, 
+                        this.radius, this.proportional, this.cycleMethod, 
+                        stops);
+            }
+            return new LinearGradient(this.x1, this.y1, this.x2, this.y2, 
+                    this.proportional, this.cycleMethod, stops);
+        }
+
+        private int calculateHashCode() {
+            int result = this.type;
+            result = 31 * result + this.cycleMethod.hashCode();
+            result = 31 * result + Boolean.hashCode(this.proportional);
+            result = 31 * result + Double.hashCode(this.x1);
+            result = 31 * result + Double.hashCode(this.y1);
+            result = 31 * result + Double.hashCode(this.x2);
+            result = 31 * result + Double.hashCode(this.y2);
+            result = 31 * result + Double.hashCode(this.radius);
+            for (int i = 0; i < this.stopCount; i++) {
+                result = 31 * result + Float.hashCode(this.fractions[i]);
+                result = 31 * result + this.colors[i];
+            }
+            return result;
+        }
+
+        @Override
+        public int hashCode() {
+            return this.hash;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (obj == this) {
+                return true;
+            }
+            if (!(obj instanceof Key)) {
+                return false;
+            }
+            Key that = (Key) obj;
+            if (this.hash != that.hash || this.type != that.type
+                    || this.cycleMethod != that.cycleMethod
+                    || this.proportional != that.proportional
+                    || this.stopCount != that.stopCount) {
+                return false;
+            }
+            if (Double.compare(this.x1, that.x1) != 0
+                    || Double.compare(this.y1, that.y1) != 0
+                    || Double.compare(this.x2, that.x2) != 0
+                    || Double.compare(this.y2, that.y2) != 0
+                    || Double.compare(this.radius, that.radius) != 0) {
+                return false;
+            }
+            return Arrays.equals(this.fractions, 0, this.stopCount, 
+                    that.fractions, 0, this.stopCount)
+                    && Arrays.equals(this.colors, 0, this.stopCount, 
+                    that.colors, 0, this.stopCount);
+        }
+    }
+
+    /**
+     * Maps an AWT cycle method to the JavaFX equivalent.
+     *
+     * @param method  the cycle method.
+     *
+     * @return The JavaFX cycle method.
+     */
+    static CycleMethod toJavaFXCycleMethod(
+            MultipleGradientPaint.CycleMethod method) {
+        switch (method) {
+            case NO_CYCLE:
+                return CycleMethod.NO_CYCLE;
+            case REFLECT:
+                return CycleMethod.REFLECT;
+            case REPEAT:
+                return CycleMethod.REPEAT;
+            default:
+                throw new IllegalStateException("Unknown cycle method " + method);
+        }
+    }
+
+}
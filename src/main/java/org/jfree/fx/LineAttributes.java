@@ -0,0 +1,209 @@
+/* ============
+ * FXGraphics2D
+ * ============
+ * 
+ * (C)opyright 2014-present, by David Gilbert.
+ * 
+ * https://github.com/jfree/fxgraphics2d
+ *
+ * The FXGraphics2D class has been developed by David Gilbert for
+ * use in Orson Charts (https://github.com/jfree/orson-charts) and
+ * JFreeChart (http://www.jfree.org/jfreechart).  It may be useful for other
+ * code that uses the Graphics2D API provided by Java2D.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *   - Redistributions of source code must retain the above copyright
+ *     notice, this list of conditions and the following disclaimer.
+ *   - Redistributions in binary form must reproduce the above copyright
+ *     notice, this list of conditions and the following disclaimer in the
+ *     documentation and/or other materials provided with the distribution.
+ *   - Neither the name of JFree.org nor the names of its contributors may
+ *     be used to endorse or promote products derived from this software
+ *     without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF
+ * THE POSSIBILITY OF SUCH DAMAGE.
+ * 
+ */
+package org.jfree.fx;
+
+import java.awt.BasicStroke;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import javafx.scene.shape.StrokeLineCap;
+import javafx.scene.shape.StrokeLineJoin;
+
+/**
+ * An immutable description of the JavaFX line attributes that are 
+ * equivalent to a {@link BasicStroke}.  Instances are cached per stroke (see
+ * {@link #of(BasicStroke, double)}), so the conversion (including the 
+ * {@code double[]} dash array) happens once for each distinct stroke.
+ */
+final class LineAttributes {
+
+    /** The maximum number of strokes in the cache before it is cleared. */
+    private static final int MAX_CACHE_SIZE = 256;
+
+    /** The cached attributes, keyed by stroke. */
+    private static final Map<BasicStroke, LineAttributes> CACHE 
+            = new ConcurrentHashMap<>();
+
+    /** The line width. */
+    final double lineWidth;
+
+    /** The line cap. */
+    final StrokeLineCap lineCap;
+
+    /** The line join. */
+    final StrokeLineJoin lineJoin;
+
+    /** The miter limit. */
+    final double miterLimit;
+
+    /** The dash array ({@code null} for a solid line, must not be modified). */
+    final double[] dashes;
+
+    /** The dash offset. */
+    final double dashOffset;
+
+    /** 
+     * The most recently requested variant of a zero width stroke (see 
+     * {@link #withLineWidth(double)}).
+     */
+    private volatile LineAttributes widthVariant;
+
+    private LineAttributes(double lineWidth, StrokeLineCap lineCap, 
+            StrokeLineJoin lineJoin, double miterLimit, double[] dashes, 
+            double dashOffset) {
+        this.lineWidth = lineWidth;
+        this.lineCap = lineCap;
+        this.lineJoin = lineJoin;
+        this.miterLimit = miterLimit;
+        this.dashes = dashes;
+        this.dashOffset = dashOffset;
+    }
+
+    /**
+     * Returns the line attributes for the specified stroke.
+     * 
+     * @param bs  the stroke ({@code null} not permitted).
+     * @param zeroStrokeWidth  the width to use if the stroke has a width of
+     *     zero.
+     * 
+     * @return The line attributes (never {@code null}).
+     */
+    static LineAttributes of(BasicStroke bs, double zeroStrokeWidth) {
+        LineAttributes result = CACHE.get(bs);
+        if (result == null) {
+            if (CACHE.size() >= MAX_CACHE_SIZE) {
+                CACHE.clear();
+            }
+            result = new LineAttributes(bs.getLineWidth(), 
+                    awtToJavaFXLineCap(bs.getEndCap()), 
+                    awtToJavaFXLineJoin(bs.getLineJoin()), 
+                    bs.getMiterLimit(), floatToDoubleArray(bs.getDashArray()),
+                    bs.getDashPhase());
+            CACHE.put(bs, result);
+        }
+        if (result.lineWidth == 0.0) {
+            result = result.withLineWidth(zeroStrokeWidth);
+        }
+        return result;
+    }
+
+    /**
+     * Returns line attributes that are the same as this instance except for
+     * the line width.  The last result is retained, since the substitute 
+     * width for zero width strokes rarely changes.
+     * 
+     * @param width  the line width.
+     * 
+     * @return The line attributes (never {@code null}).
+     */
+    private LineAttributes withLineWidth(double width) {
+        LineAttributes result = this.widthVariant;
+        if (result == null || result.lineWidth != width) {
+            result = new LineAttributes(width, this.lineCap, this.lineJoin, 
+                    this.miterLimit, this.dashes, this.dashOffset);
+            this.widthVariant = result;
+        }
+        return result;
+    }
+
+    /**
+     * Returns {@code true} if the dash arrays are equal.
+     * 
+     * @param other  the other attributes ({@code null} not permitted).
+     * 
+     * @return A boolean.
+     */
+    boolean hasSameDashes(LineAttributes other) {
+        return this.dashes == other.dashes 
+                || Arrays.equals(this.dashes, other.dashes);
+    }
+
+    /**
+     * Maps a line cap code from AWT to the corresponding JavaFX StrokeLineCap
+     * enum value.
+     * 
+     * @param cap  the line cap code.
+     * 
+     * @return A JavaFX line cap value. 
+     */
+    private static StrokeLineCap awtToJavaFXLineCap(int cap) {
+        switch (cap) {
+            case BasicStroke.CAP_BUTT:
+                return StrokeLineCap.BUTT;
+            case BasicStroke.CAP_ROUND:
+                return StrokeLineCap.ROUND;
+            case BasicStroke.CAP_SQUARE:
+                return StrokeLineCap.SQUARE;
+            default:
+                throw new IllegalArgumentException("Unrecognised cap code: " + cap);
+        }
+    }
+
+    /**
+     * Maps a line join code from AWT to the corresponding JavaFX 
+     * StrokeLineJoin enum value.
+     * 
+     * @param join  the line join code.
+     * 
+     * @return A JavaFX line join value. 
+     */
+    private static StrokeLineJoin awtToJavaFXLineJoin(int join) {
+        switch (join) {
+            case BasicStroke.JOIN_BEVEL:
+                return StrokeLineJoin.BEVEL;
+            case BasicStroke.JOIN_MITER:
+                return StrokeLineJoin.MITER;
+            case BasicStroke.JOIN_ROUND:
+                return StrokeLineJoin.ROUND;
+            default:
+                throw new IllegalArgumentException("Unrecognised join code: " + join);
+        }
+    }
+
+    private static double[] floatToDoubleArray(float[] f) {
+        if (f == null) {
+            return null;
+        }
+        double[] d = new double[f.length];
+        for (int i = 0; i < f.length; i++) {
+            d[i] = f[i];
+        }
+        return d;
+    }
+
+}
@@ -0,0 +1,326 @@
+/* ============
+ * FXGraphics2D
+ * ============
+ * 
+ * (C)opyright 2014-present, by David Gilbert.
+ * 
+ * https://github.com/jfree/fxgraphics2d
+ *
+ * The FXGraphics2D class has been developed by David Gilbert for
+ * use in Orson Charts (https://github.com/jfree/orson-charts) and
+ * JFreeChart (http://www.jfree.org/jfreechart).  It may be useful for other
+ * code that uses the Graphics2D API provided by Java2D.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *   - Redistributions of source code must retain the above copyright
+ *     notice, this list of conditions and the following disclaimer.
+ *   - Redistributions in binary form must reproduce the above copyright
+ *     notice, this list of conditions and the following disclaimer in the
+ *     documentation and/or other materials provided with the distribution.
+ *   - Neither the name of JFree.org nor the names of its contributors may
+ *     be used to endorse or promote products derived from this software
+ *     without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF
+ * THE POSSIBILITY OF SUCH DAMAGE.
+ * 
+ */
+package org.jfree.fx;
+
+import java.awt.geom.AffineTransform;
+import java.awt.geom.PathIterator;
+import java.util.Arrays;
+
+/**
+ * Reduces the number of vertices in polylines that have many vertices per
+ * device pixel column, using min/max-per-column ("M4") decimation.  For 
+ * each run of consecutive vertices that fall in the same pixel column (in 
+ * device space), only the first and last vertices and the vertices with the
+ * minimum and maximum device y-coordinate are kept, so the rendered line 
+ * covers the same pixels.  The vertices that are kept retain their 
+ * original (user space) coordinates.  Vertices are decimated as they are
+ * read, keeping only the state of the current column, so the input is not
+ * copied.
+ * <p>
+ * An instance holds reusable buffers, so it is not thread-safe.
+ */
+final class LineDecimator {
+
+    /** The x-coordinates of the retained vertices. */
+    double[] xs = new double[64];
+
+    /** The y-coordinates of the retained vertices. */
+    double[] ys = new double[64];
+
+    /** The number of retained vertices. */
+    int count;
+
+    /** The index of the first retained vertex of each subpath. */
+    int[] starts = new int[4];
+
+    /** Flags indicating which subpaths are closed. */
+    boolean[] closed = new boolean[4];
+
+    /** The number of subpaths. */
+    int subpathCount;
+
+    /** The coordinates for the path iterator. */
+    private final double[] coords = new double[6];
+
+    /** The x-coordinate of the start of the current subpath. */
+    private double moveX;
+
+    /** The y-coordinate of the start of the current subpath. */
+    private double moveY;
+
+    /** A flag that indicates that a subpath has been started. */
+    private boolean subpathOpen;
+
+    /** The x-scale of the transform. */
+    private double m00;
+
+    /** The x-shear of the transform. */
+    private double m01;
+
+    /** The x-translation of the transform. */
+    private double m02;
+
+    /** The y-shear of the transform. */
+    private double m10;
+
+    /** The y-scale of the transform. */
+    private double m11;
+
+    /** The sequence number of the next input vertex. */
+    private long seq;
+
+    /** A flag that indicates that the current column has vertices. */
+    private boolean columnOpen;
+
+    /** The current pixel column. */
+    private double column;
+
+    /** The x-coordinate of the first vertex in the column. */
+    private double firstX;
+
+    /** The y-coordinate of the first vertex in the column. */
+    private double firstY;
+
+    /** The sequence number of the first vertex in the column. */
+    private long firstSeq;
+
+    /** The x-coordinate of the vertex with the minimum device y. */
+    private double minX;
+
+    /** The y-coordinate of the vertex with the minimum device y. */
+    private double minY;
+
+    /** The minimum device y-coordinate in the column. */
+    private double minDy;
+
+    /** The sequence number of the vertex with the minimum device y. */
+    private long minSeq;
+
+    /** The x-coordinate of the vertex with the maximum device y. */
+    private double maxX;
+
+    /** The y-coordinate of the vertex with the maximum device y. */
+    private double maxY;
+
+    /** The maximum device y-coordinate in the column. */
+    private double maxDy;
+
+    /** The sequence number of the vertex with the maximum device y. */
+    private long maxSeq;
+
+    /** The x-coordinate of the last vertex in the column. */
+    private double lastX;
+
+    /** The y-coordinate of the last vertex in the column. */
+    private double lastY;
+
+    /** The sequence number of the last vertex in the column. */
+    private long lastSeq;
+
+    /**
+     * Decimates a path that contains only straight line segments.
+     * 
+     * @param iterator  the path iterator ({@code null} not permitted).
+     * @param t  the transform from user space to device space 
+     *     ({@code null} not permitted).
+     * 
+     * @return {@code false} if the path contains curves (in which case the
+     *     result is incomplete and should not be used).
+     */
+    boolean decimate(PathIterator iterator, AffineTransform t) {
+        begin(t);
+        for (; !iterator.isDone(); iterator.next()) {
+            switch (iterator.currentSegment(this.coords)) {
+                case PathIterator.SEG_MOVETO:
+                    endSubpath(false);
+                    this.moveX = this.coords[0];
+                    this.moveY = this.coords[1];
+                    startSubpath();
+                    add(this.moveX, this.moveY);
+                    break;
+                case PathIterator.SEG_LINETO:
+                    if (!this.subpathOpen) {
+                        // a segment after a close starts at the same point 
+                        // as the closed subpath
+                        startSubpath();
+                        add(this.moveX, this.moveY);
+                    }
+                    add(this.coords[0], this.coords[1]);
+                    break;
+                case PathIterator.SEG_CLOSE:
+                    endSubpath(true);
+                    break;
+                default:
+                    return false;
+            }
+        }
+        endSubpath(false);
+        return true;
+    }
+
+    /**
+     * Decimates a polyline.  The result is a single subpath.
+     * 
+     * @param x  the x-coordinates ({@code null} not permitted).
+     * @param y  the y-coordinates ({@code null} not permitted).
+     * @param n  the number of vertices.
+     * @param t  the transform from user space to device space 
+     *     ({@code null} not permitted).
+     */
+    void decimate(double[] x, double[] y, int n, AffineTransform t) {
+        begin(t);
+        startSubpath();
+        for (int i = 0; i < n; i++) {
+            add(x[i], y[i]);
+        }
+        endSubpath(false);
+    }
+
+    private void begin(AffineTransform t) {
+        this.count = 0;
+        this.subpathCount = 0;
+        this.subpathOpen = false;
+        this.columnOpen = false;
+        this.seq = 0L;
+        this.m00 = t.getScaleX();
+        this.m01 = t.getShearX();
+        this.m02 = t.getTranslateX();
+        this.m10 = t.getShearY();
+        this.m11 = t.getScaleY();
+    }
+
+    private void startSubpath() {
+        if (this.subpathCount == this.starts.length) {
+            this.starts = Arrays.copyOf(this.starts, this.subpathCount * 2);
+            this.closed = Arrays.copyOf(this.closed, this.subpathCount * 2);
+        }
+        this.starts[this.subpathCount] = this.count;
+        this.closed[this.subpathCount] = false;
+        this.subpathCount++;
+        this.subpathOpen = true;
+        this.columnOpen = false;
+    }
+
+    private void endSubpath(boolean close) {
+        if (!this.subpathOpen) {
+            return;
+        }
+        endColumn();
+        this.closed[this.subpathCount - 1] = close;
+        this.subpathOpen = false;
+    }
+
+    /**
+     * Adds a vertex to the current subpath, emitting the previous column 
+     * if the vertex is in a new column.
+     */
+    private void add(double x, double y) {
+        final double c = Math.floor(this.m00 * x + this.m01 * y + this.m02);
+        final double dy = this.m10 * x + this.m11 * y;
+        final long i = this.seq++;
+        if (this.columnOpen && c == this.column) {
+            if (dy < this.minDy) {
+                this.minX = x;
+                this.minY = y;
+                this.minDy = dy;
+                this.minSeq = i;
+            } else if (dy > this.maxDy) {
+                this.maxX = x;
+                this.maxY = y;
+                this.maxDy = dy;
+                this.maxSeq = i;
+            }
+        } else {
+            endColumn();
+            this.columnOpen = true;
+            this.column = c;
+            this.firstX = x;
+            this.firstY = y;
+            this.firstSeq = i;
+            this.minX = x;
+            this.minY = y;
+            this.minDy = dy;
+            this.minSeq = i;
+            this.maxX = x;
+            this.maxY = y;
+            this.maxDy = dy;
+            this.maxSeq = i;
+        }
+        this.lastX = x;
+        this.lastY = y;
+        this.lastSeq = i;
+    }
+
+    /**
+     * Appends the retained vertices for the current column, in their 
+     * original order and without duplicates.
+     */
+    private void endColumn() {
+        if (!this.columnOpen) {
+            return;
+        }
+        this.columnOpen = false;
+        final boolean minFirst = this.minSeq <= this.maxSeq;
+        final long lo = minFirst ? this.minSeq : this.maxSeq;
+        final long hi = minFirst ? this.maxSeq : this.minSeq;
+        emit(this.firstX, this.firstY);
+        if (lo != this.firstSeq) {
+            emit(minFirst ? this.minX : this.maxX, 
+                    minFirst ? this.minY : this.maxY);
+        }
+        if (hi != lo && hi != this.firstSeq) {
+            emit(minFirst ? this.maxX : this.minX, 
+                    minFirst ? this.maxY : this.minY);
+        }
+        if (this.lastSeq != hi && this.lastSeq != lo 
+                && this.lastSeq != this.firstSeq) {
+            emit(this.lastX, this.lastY);
+        }
+    }
+
+    private void emit(double x, double y) {
+        if (this.count == this.xs.length) {
+            this.xs = Arrays.copyOf(this.xs, this.count * 2);
+            this.ys = Arrays.copyOf(this.ys, this.count * 2);
+        }
+        this.xs[this.count] = x;
+        this.ys[this.count] = y;
+        this.count++;
+    }
+
+}
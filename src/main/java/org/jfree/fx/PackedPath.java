@@ -0,0 +1,402 @@
+/* ============
+ * FXGraphics2D
+ * ============
+ * 
+ * (C)opyright 2014-present, by David Gilbert.
+ * 
+ * https://github.com/jfree/fxgraphics2d
+ *
+ * The FXGraphics2D class has been developed by David Gilbert for
+ * use in Orson Charts (https://github.com/jfree/orson-charts) and
+ * JFreeChart (http://www.jfree.org/jfreechart).  It may be useful for other
+ * code that uses the Graphics2D API provided by Java2D.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *   - Redistributions of source code must retain the above copyright
+ *     notice, this list of conditions and the following disclaimer.
+ *   - Redistributions in binary form must reproduce the above copyright
+ *     notice, this list of conditions and the following disclaimer in the
+ *     documentation and/or other materials provided with the distribution.
+ *   - Neither the name of JFree.org nor the names of its contributors may
+ *     be used to endorse or promote products derived from this software
+ *     without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF
+ * THE POSSIBILITY OF SUCH DAMAGE.
+ * 
+ */
+package org.jfree.fx;
+
+import java.awt.Shape;
+import java.awt.geom.AffineTransform;
+import java.awt.geom.PathIterator;
+import java.awt.geom.Rectangle2D;
+import java.util.Arrays;
+import javafx.scene.canvas.GraphicsContext;
+import javafx.scene.shape.FillRule;
+
+/**
+ * A compact copy of the path segments of a shape, stored in primitive 
+ * arrays.  Instances can be compared by geometry (the winding rule, segment 
+ * types and coordinates) and replayed to a JavaFX {@code GraphicsContext}, 
+ * so they are used as both keys and values in the caches.  An instance can 
+ * be reused (see {@link #set(java.awt.Shape)}) so that a cache lookup does 
+ * not need to allocate new arrays.
+ */
+final class PackedPath {
+
+    /** The segment types. */
+    private byte[] types;
+
+    /** The number of segments. */
+    private int typeCount;
+
+    /** The segment coordinates. */
+    private double[] coords;
+
+    /** The number of coordinates. */
+    private int coordCount;
+
+    /** The winding rule. */
+    private int windingRule;
+
+    /** The hash code for the path geometry. */
+    private int hash;
+
+    /** The bounds of the coordinates (computed lazily). */
+    private Rectangle2D bounds;
+
+    /**
+     * Creates a new empty path.
+     */
+    PackedPath() {
+        this(new byte[16], new double[32]);
+    }
+
+    private PackedPath(byte[] types, double[] coords) {
+        this.types = types;
+        this.coords = coords;
+        this.windingRule = PathIterator.WIND_NON_ZERO;
+        this.hash = 1;
+    }
+
+    /**
+     * Creates a new path containing the segments of the specified shape.
+     * 
+     * @param shape  the shape ({@code null} not permitted).
+     * 
+     * @return A new path. 
+     */
+    static PackedPath of(Shape shape) {
+        return new PackedPath().set(shape).copy();
+    }
+
+    /**
+     * Replaces the content of this path with the segments of the specified
+     * shape.
+     * 
+     * @param shape  the shape ({@code null} not permitted).
+     * 
+     * @return This path.
+     */
+    PackedPath set(Shape shape) {
+        this.typeCount = 0;
+        this.coordCount = 0;
+        this.bounds = null;
+        final double[] c = new double[6];
+        PathIterator iterator = shape.getPathIterator(null);
+        this.windingRule = iterator.getWindingRule();
+        int h = this.windingRule;
+        for (; !iterator.isDone(); iterator.next()) {
+            final int segType = iterator.currentSegment(c);
+            final int n = coordinateCount(segType);
+            if (this.typeCount == this.types.length) {
+                this.types = Arrays.copyOf(this.types, this.typeCount * 2);
+            }
+            if (this.coordCount + n > this.coords.length) {
+                this.coords = Arrays.copyOf(this.coords, 
+                        Math.max(this.coords.length * 2, this.coordCount + n));
+            }
+            this.types[this.typeCount++] = (byte) segType;
+            h = 31 * h + segType;
+            for (int i = 0; i < n; i++) {
+                this.coords[this.coordCount++] = c[i];
+                long bits = Double.doubleToLongBits(c[i]);
+                h = 31 * h + (int) (bits ^ (bits >>> 32));
+            }
+        }
+        this.hash = h;
+        return this;
+    }
+
+    /**
+     * Returns a copy of this path, with arrays trimmed to size.
+     * 
+     * @return A copy of this path. 
+     */
+    PackedPath copy() {
+        PackedPath result = new PackedPath(
+                Arrays.copyOf(this.types, this.typeCount),
+                Arrays.copyOf(this.coords, this.coordCount));
+        result.typeCount = this.typeCount;
+        result.coordCount = this.coordCount;
+        result.windingRule = this.windingRule;
+        result.hash = this.hash;
+        return result;
+    }
+
+    /**
+     * Returns the number of segments in the path.
+     * 
+     * @return The number of segments. 
+     */
+    int getSegmentCount() {
+        return this.typeCount;
+    }
+
+    /**
+     * Returns the bounds of the coordinates in the path, including control
+     * points, so the result may be larger than the tight bounds of the 
+     * geometry.  The result is computed on the first call and retained, so
+     * callers must not modify it.
+     * 
+     * @return The bounds (never {@code null}).
+     */
+    Rectangle2D getBounds() {
+        if (this.bounds == null) {
+            if (this.coordCount == 0) {
+                this.bounds = new Rectangle2D.Double();
+            } else {
+                final double[] c = this.coords;
+                double minX = c[0];
+                double minY = c[1];
+                double maxX = minX;
+                double maxY = minY;
+                for (int i = 2; i < this.coordCount; i += 2) {
+                    minX = Math.min(minX, c[i]);
+                    minY = Math.min(minY, c[i + 1]);
+                    maxX = Math.max(maxX, c[i]);
+                    maxY = Math.max(maxY, c[i + 1]);
+                }
+                this.bounds = new Rectangle2D.Double(minX, minY, 
+                        maxX - minX, maxY - minY);
+            }
+        }
+        return this.bounds;
+    }
+
+    /**
+     * Returns the winding rule for the path (one of 
+     * {@link PathIterator#WIND_EVEN_ODD} and 
+     * {@link PathIterator#WIND_NON_ZERO}).
+     * 
+     * @return The winding rule.
+     */
+    int getWindingRule() {
+        return this.windingRule;
+    }
+
+    /**
+     * Returns the JavaFX fill rule that corresponds to the winding rule for
+     * the path.
+     * 
+     * @return The fill rule (never {@code null}).
+     */
+    FillRule getFillRule() {
+        return this.windingRule == PathIterator.WIND_EVEN_ODD 
+                ? FillRule.EVEN_ODD : FillRule.NON_ZERO;
+    }
+
+    /**
+     * Appends the segments of this path, translated by {@code (dx, dy)}, to
+     * the current path in the graphics context.
+     * 
+     * @param gc  the graphics context ({@code null} not permitted).
+     * @param dx  the x-translation.
+     * @param dy  the y-translation.
+     */
+    void appendTo(GraphicsContext gc, double dx, double dy) {
+        final double[] c = this.coords;
+        int j = 0;
+        for (int i = 0; i < this.typeCount; i++) {
+            switch (this.types[i]) {
+                case PathIterator.SEG_MOVETO:
+                    gc.moveTo(c[j] + dx, c[j + 1] + dy);
+                    j += 2;
+                    break;
+                case PathIterator.SEG_LINETO:
+                    gc.lineTo(c[j] + dx, c[j + 1] + dy);
+                    j += 2;
+                    break;
+                case PathIterator.SEG_QUADTO:
+                    gc.quadraticCurveTo(c[j] + dx, c[j + 1] + dy, 
+                            c[j + 2] + dx, c[j + 3] + dy);
+                    j += 4;
+                    break;
+                case PathIterator.SEG_CUBICTO:
+                    gc.bezierCurveTo(c[j] + dx, c[j + 1] + dy, 
+                            c[j + 2] + dx, c[j + 3] + dy, 
+                            c[j + 4] + dx, c[j + 5] + dy);
+                    j += 6;
+                    break;
+                case PathIterator.SEG_CLOSE:
+                    gc.closePath();
+                    break;
+                default:
+                    throw new RuntimeException("Unrecognised segment type " 
+                            + this.types[i]);
+            }
+        }
+    }
+
+    /**
+     * Returns an iterator over the segments of this path (for example, to
+     * test the path for intersection with a rectangle via
+     * {@code Path2D.intersects(PathIterator, double, double, double, double)}).
+     * The path must not be modified while the iterator is in use.
+     * 
+     * @param at  an optional transform to apply to the coordinates 
+     *     ({@code null} permitted).
+     * 
+     * @return The iterator (never {@code null}).
+     */
+    PathIterator getPathIterator(AffineTransform at) {
+        return new Iterator(this, at);
+    }
+
+    /**
+     * Returns the number of coordinates for a segment type.
+     * 
+     * @param segType  the segment type.
+     * 
+     * @return The number of coordinates. 
+     */
+    private static int coordinateCount(int segType) {
+        switch (segType) {
+            case PathIterator.SEG_MOVETO:
+            case PathIterator.SEG_LINETO:
+                return 2;
+            case PathIterator.SEG_QUADTO:
+                return 4;
+            case PathIterator.SEG_CUBICTO:
+                return 6;
+            case PathIterator.SEG_CLOSE:
+                return 0;
+            default:
+                throw new RuntimeException("Unrecognised segment type " 
+                        + segType);
+        }
+    }
+
+    @Override
+    public int hashCode() {
+        return this.hash;
+    }
+
+    /**
+     * Tests this path for equality with an arbitrary object.  Two paths are
+     * equal if they have the same winding rule, segment types and 
+     * coordinates.
+     * 
+     * @param obj  the object ({@code null} permitted).
+     * 
+     * @return A boolean. 
+     */
+    @Override
+    public boolean equals(Object obj) {
+        if (obj == this) {
+            return true;
+        }
+        if (!(obj instanceof PackedPath)) {
+            return false;
+        }
+        PackedPath that = (PackedPath) obj;
+        if (this.hash != that.hash || this.windingRule != that.windingRule
+                || this.typeCount != that.typeCount 
+                || this.coordCount != that.coordCount) {
+            return false;
+        }
+        return Arrays.equals(this.types, 0, this.typeCount, that.types, 0, 
+                that.typeCount) && Arrays.equals(this.coords, 0, 
+                this.coordCount, that.coords, 0, that.coordCount);
+    }
+
+    /**
+     * A path iterator over the segments of a packed path.
+     */
+    private static final class Iterator implements PathIterator {
+
+        /** The path. */
+        private final PackedPath path;
+
+        /** The transform ({@code null} permitted). */
+        private final AffineTransform transform;
+
+        /** The index of the current segment. */
+        private int index;
+
+        /** The index of the first coordinate for the current segment. */
+        private int coordIndex;
+
+        Iterator(PackedPath path, AffineTransform transform) {
+            this.path = path;
+            this.transform = transform;
+        }
+
+        @Override
+        public int getWindingRule() {
+            return this.path.windingRule;
+        }
+
+        @Override
+        public boolean isDone() {
+            return this.index >= this.path.typeCount;
+        }
+
+        @Override
+        public void next() {
+            this.coordIndex += coordinateCount(this.path.types[this.index]);
+            this.index++;
+        }
+
+        @Override
+        public int currentSegment(float[] coords) {
+            final int type = this.path.types[this.index];
+            final int n = coordinateCount(type);
+            if (this.transform != null) {
+                this.transform.transform(this.path.coords, this.coordIndex, 
+                        coords, 0, n / 2);
+            } else {
+                for (int i = 0; i < n; i++) {
+                    coords[i] = (float) this.path.coords[this.coordIndex + i];
+                }
+            }
+            return type;
+        }
+
+        @Override
+        public int currentSegment(double[] coords) {
+            final int type = this.path.types[this.index];
+            final int n = coordinateCount(type);
+            if (this.transform != null) {
+                this.transform.transform(this.path.coords, this.coordIndex, 
+                        coords, 0, n / 2);
+            } else {
+                System.arraycopy(this.path.coords, this.coordIndex, coords, 0,
+                        n);
+            }
+            return type;
+        }
+    }
+
+}
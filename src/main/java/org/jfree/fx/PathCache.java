@@ -0,0 +1,144 @@
+/* ============
+ * FXGraphics2D
+ * ============
+ * 
+ * (C)opyright 2014-present, by David Gilbert.
+ * 
+ * https://github.com/jfree/fxgraphics2d
+ *
+ * The FXGraphics2D class has been developed by David Gilbert for
+ * use in Orson Charts (https://github.com/jfree/orson-charts) and
+ * JFreeChart (http://www.jfree.org/jfreechart).  It may be useful for other
+ * code that uses the Graphics2D API provided by Java2D.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *   - Redistributions of source code must retain the above copyright
+ *     notice, this list of conditions and the following disclaimer.
+ *   - Redistributions in binary form must reproduce the above copyright
+ *     notice, this list of conditions and the following disclaimer in the
+ *     documentation and/or other materials provided with the distribution.
+ *   - Neither the name of JFree.org nor the names of its contributors may
+ *     be used to endorse or promote products derived from this software
+ *     without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF
+ * THE POSSIBILITY OF SUCH DAMAGE.
+ * 
+ */
+package org.jfree.fx;
+
+import java.awt.geom.Path2D;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+/**
+ * A cache that maps {@code Path2D} instances (by identity) to packed copies
+ * of their segments, so that a path that is drawn repeatedly does not need
+ * to be iterated each time.  The entries are weakly referenced, so they are 
+ * discarded when the path is no longer in use.
+ * <p>
+ * A {@code Path2D} does not report modifications, so each entry records a 
+ * version supplied by the caller (see {@link FXHints#KEY_CACHE_SHAPE_PATHS})
+ * and is only reused for a lookup with an equal version.  The caller is 
+ * responsible for changing the version whenever the content of any path 
+ * drawn with it changes (including a path that is reset and rebuilt).  A 
+ * hit costs a map lookup and a version comparison, and avoids iterating 
+ * the path through a {@code PathIterator}; replaying the packed segments 
+ * still takes one call to the graphics context per segment.
+ */
+final class PathCache {
+
+    /** A cache that is shared by all {@code FXGraphics2D} instances. */
+    static final PathCache SHARED = new PathCache();
+
+    /** The entries, keyed by path (paths do not override equals()). */
+    private final Map<Path2D, Entry> map = new WeakHashMap<>();
+
+    /** The number of lookups that found a valid entry. */
+    private long hitCount;
+
+    /** The number of lookups that did not find a valid entry. */
+    private long missCount;
+
+    /**
+     * Returns the packed segments for the specified path.
+     * 
+     * @param path  the path ({@code null} not permitted).
+     * @param version  the version of the path content ({@code null} not 
+     *     permitted).
+     * 
+     * @return The packed segments (never {@code null}). 
+     */
+    synchronized PackedPath get(Path2D path, Object version) {
+        Entry e = this.map.get(path);
+        if (e != null && e.version.equals(version)) {
+            this.hitCount++;
+            return e.packed;
+        }
+        this.missCount++;
+        e = new Entry(PackedPath.of(path), version);
+        this.map.put(path, e);
+        return e.packed;
+    }
+
+    /**
+     * Removes all entries from the cache.
+     */
+    synchronized void clear() {
+        this.map.clear();
+    }
+
+    /**
+     * Returns the number of entries in the cache.
+     * 
+     * @return The number of entries. 
+     */
+    synchronized int size() {
+        return this.map.size();
+    }
+
+    /**
+     * Returns the number of lookups that found a valid entry.
+     * 
+     * @return The hit count. 
+     */
+    synchronized long getHitCount() {
+        return this.hitCount;
+    }
+
+    /**
+     * Returns the number of lookups that did not find a valid entry.
+     * 
+     * @return The miss count. 
+     */
+    synchronized long getMissCount() {
+        return this.missCount;
+    }
+
+    /**
+     * A cache entry (the packed segments and the version they were packed
+     * for).
+     */
+    private static final class Entry {
+
+        final PackedPath packed;
+
+        final Object version;
+
+        Entry(PackedPath packed, Object version) {
+            this.packed = packed;
+            this.version = version;
+        }
+    }
+
+}
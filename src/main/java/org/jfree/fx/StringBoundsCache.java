@@ -0,0 +1,273 @@
+/* ============
+ * FXGraphics2D
+ * ============
+ * 
+ * (C)opyright 2014-present, by David Gilbert.
+ * 
+ * https://github.com/jfree/fxgraphics2d
+ *
+ * The FXGraphics2D class has been developed by David Gilbert for
+ * use in Orson Charts (https://github.com/jfree/orson-charts) and
+ * JFreeChart (http://www.jfree.org/jfreechart).  It may be useful for other
+ * code that uses the Graphics2D API provided by Java2D.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *   - Redistributions of source code must retain the above copyright
+ *     notice, this list of conditions and the following disclaimer.
+ *   - Redistributions in binary form must reproduce the above copyright
+ *     notice, this list of conditions and the following disclaimer in the
+ *     documentation and/or other materials provided with the distribution.
+ *   - Neither the name of JFree.org nor the names of its contributors may
+ *     be used to endorse or promote products derived from this software
+ *     without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF
+ * THE POSSIBILITY OF SUCH DAMAGE.
+ * 
+ */
+package org.jfree.fx;
+
+import java.awt.Font;
+import java.awt.geom.Rectangle2D;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+
+/**
+ * A bounded LRU cache of string bounds, keyed by font and string.  Lookups
+ * accept a range of any {@code CharSequence} and use a reusable key, so a
+ * cache hit does not allocate.  The cache is thread-safe.
+ */
+final class StringBoundsCache {
+
+    /** The default maximum number of entries. */
+    static final int DEFAULT_MAX_SIZE = 2048;
+
+    /** A cache that is shared by all {@code FXFontMetrics} instances. */
+    static final StringBoundsCache SHARED 
+            = new StringBoundsCache(DEFAULT_MAX_SIZE);
+
+    /** The cached bounds, in access order. */
+    private final LinkedHashMap<Key, Bounds> map;
+
+    /** The key used for lookups. */
+    private final Key lookupKey = new Key();
+
+    /** The maximum number of entries. */
+    private int maxSize;
+
+    /** The number of lookups that found cached bounds. */
+    private long hitCount;
+
+    /** The number of lookups that did not find cached bounds. */
+    private long missCount;
+
+    /**
+     * Creates a new cache.
+     * 
+     * @param maxSize  the maximum number of entries.
+     */
+    StringBoundsCache(int maxSize) {
+        this.maxSize = maxSize;
+        this.map = new LinkedHashMap<>(64, 0.75f, true);
+    }
+
+    /**
+     * Looks up the bounds for a range of characters and, if they are found,
+     * copies them to {@code result}.
+     * 
+     * @param font  the font ({@code null} not permitted).
+     * @param text  the text ({@code null} not permitted).
+     * @param begin  the index of the first character.
+     * @param limit  the index after the last character.
+     * @param result  the rectangle to receive the bounds ({@code null} not 
+     *     permitted).
+     * 
+     * @return A boolean indicating whether the bounds were found. 
+     */
+    synchronized boolean get(Font font, CharSequence text, int begin, 
+            int limit, Rectangle2D result) {
+        Bounds b = this.map.get(this.lookupKey.set(font, text, begin, limit));
+        this.lookupKey.text = null;
+        if (b == null) {
+            this.missCount++;
+            return false;
+        }
+        this.hitCount++;
+        result.setRect(b.x, b.y, b.width, b.height);
+        return true;
+    }
+
+    /**
+     * Adds the bounds for a string to the cache.
+     * 
+     * @param font  the font ({@code null} not permitted).
+     * @param text  the text ({@code null} not permitted).
+     * @param bounds  the bounds ({@code null} not permitted).
+     */
+    synchronized void put(Font font, String text, Rectangle2D bounds) {
+        if (this.maxSize <= 0) {
+            return;
+        }
+        this.map.put(new Key().set(font, text, 0, text.length()), 
+                new Bounds(bounds));
+        trim();
+    }
+
+    /**
+     * Sets the maximum number of entries, evicting the least recently used
+     * entries if necessary.
+     * 
+     * @param maxSize  the maximum number of entries (zero disables the 
+     *     cache).
+     */
+    synchronized void setMaxSize(int maxSize) {
+        if (maxSize < 0) {
+            throw new IllegalArgumentException("Negative 'maxSize'.");
+        }
+        this.maxSize = maxSize;
+        trim();
+    }
+
+    /**
+     * Returns the maximum number of entries.
+     * 
+     * @return The maximum number of entries. 
+     */
+    synchronized int getMaxSize() {
+        return this.maxSize;
+    }
+
+    private void trim() {
+        Iterator<Key> iterator = this.map.keySet().iterator();
+        while (this.map.size() > this.maxSize) {
+            iterator.next();
+            iterator.remove();
+        }
+    }
+
+    /**
+     * Removes all entries and resets the statistics.
+     */
+    synchronized void clear() {
+        this.map.clear();
+        this.hitCount = 0;
+        this.missCount = 0;
+    }
+
+    /**
+     * Returns the number of entries in the cache.
+     * 
+     * @return The number of entries. 
+     */
+    synchronized int size() {
+        return this.map.size();
+    }
+
+    /**
+     * Returns the number of lookups that found cached bounds.
+     * 
+     * @return The hit count. 
+     */
+    synchronized long getHitCount() {
+        return this.hitCount;
+    }
+
+    /**
+     * Returns the number of lookups that did not find cached bounds.
+     * 
+     * @return The miss count. 
+     */
+    synchronized long getMissCount() {
+        return this.missCount;
+    }
+
+    /**
+     * Immutable string bounds.
+     */
+    private static final class Bounds {
+
+        final double x;
+
+        final double y;
+
+        final double width;
+
+        final double height;
+
+        Bounds(Rectangle2D r) {
+            this.x = r.getX();
+            this.y = r.getY();
+            this.width = r.getWidth();
+            this.height = r.getHeight();
+        }
+    }
+
+    /**
+     * The cache key (a font and a range of characters).  The hash code is 
+     * computed in the same way as {@code String.hashCode()} for the range.
+     */
+    private static final class Key {
+
+        Font font;
+
+        CharSequence text;
+
+        int begin;
+
+        int limit;
+
+        int hash;
+
+        Key set(Font font, CharSequence text, int begin, int limit) {
+            this.font = font;
+            this.text = text;
+            this.begin = begin;
+            this.limit = limit;
+            int h = 0;
+            for (int i = begin; i < limit; i++) {
+                h = 31 * h + text.charAt(i);
+            }
+            this.hash = 31 * font.hashCode() + h;
+            return this;
+        }
+
+        @Override
+        public int hashCode() {
+            return this.hash;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (obj == this) {
+                return true;
+            }
+            if (!(obj instanceof Key)) {
+                return false;
+            }
+            Key that = (Key) obj;
+            int length = this.limit - this.begin;
+            if (this.hash != that.hash || length != that.limit - that.begin 
+                    || !this.font.equals(that.font)) {
+                return false;
+            }
+            for (int i = 0; i < length; i++) {
+                if (this.text.charAt(this.begin + i) 
+                        != that.text.charAt(that.begin + i)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+
+}
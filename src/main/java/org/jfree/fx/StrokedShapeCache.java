@@ -0,0 +1,216 @@
+/* ============
+ * FXGraphics2D
+ * ============
+ * 
+ * (C)opyright 2014-present, by David Gilbert.
+ * 
+ * https://github.com/jfree/fxgraphics2d
+ *
+ * The FXGraphics2D class has been developed by David Gilbert for
+ * use in Orson Charts (https://github.com/jfree/orson-charts) and
+ * JFreeChart (http://www.jfree.org/jfreechart).  It may be useful for other
+ * code that uses the Graphics2D API provided by Java2D.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *   - Redistributions of source code must retain the above copyright
+ *     notice, this list of conditions and the following disclaimer.
+ *   - Redistributions in binary form must reproduce the above copyright
+ *     notice, this list of conditions and the following disclaimer in the
+ *     documentation and/or other materials provided with the distribution.
+ *   - Neither the name of JFree.org nor the names of its contributors may
+ *     be used to endorse or promote products derived from this software
+ *     without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF
+ * THE POSSIBILITY OF SUCH DAMAGE.
+ * 
+ */
+package org.jfree.fx;
+
+import java.awt.Shape;
+import java.awt.Stroke;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * A bounded cache of stroked outlines for strokes that are not 
+ * {@code BasicStroke} instances (these are rendered by filling the result
+ * of {@link Stroke#createStrokedShape(java.awt.Shape)}, which can be 
+ * expensive).  Entries are keyed by the stroke and the geometry of the
+ * shape, so an outline is reused when an equal shape is drawn again (for
+ * example, on the next frame of an animation).  The least recently used 
+ * entries are evicted when the total segment count of the cached paths
+ * exceeds the limit.
+ */
+final class StrokedShapeCache {
+
+    /** The default limit for the total number of cached segments. */
+    static final int DEFAULT_MAX_SEGMENTS = 200000;
+
+    /** A cache that is shared by all {@code FXGraphics2D} instances. */
+    static final StrokedShapeCache SHARED 
+            = new StrokedShapeCache(DEFAULT_MAX_SEGMENTS);
+
+    /** The limit for the total number of cached segments. */
+    private final int maxSegments;
+
+    /** The cached outlines, in access order. */
+    private final LinkedHashMap<Key, PackedPath> map;
+
+    /** The total number of segments in the cached keys and outlines. */
+    private int segmentCount;
+
+    /** The number of lookups that found a cached outline. */
+    private long hitCount;
+
+    /** The number of lookups that did not find a cached outline. */
+    private long missCount;
+
+    /**
+     * Creates a new cache.
+     * 
+     * @param maxSegments  the limit for the total number of segments in the
+     *     cached keys and outlines.
+     */
+    StrokedShapeCache(int maxSegments) {
+        this.maxSegments = maxSegments;
+        this.map = new LinkedHashMap<>(64, 0.75f, true);
+    }
+
+    /**
+     * Returns the stroked outline of a shape, creating it (and caching it)
+     * if necessary.
+     * 
+     * @param stroke  the stroke ({@code null} not permitted).
+     * @param shape  the shape ({@code null} not permitted).
+     * @param scratch  a path that will be overwritten with the segments of
+     *     {@code shape} for the lookup ({@code null} not permitted).
+     * 
+     * @return The stroked outline (never {@code null}). 
+     */
+    PackedPath get(Stroke stroke, Shape shape, PackedPath scratch) {
+        scratch.set(shape);
+        Key key = new Key(stroke, scratch);
+        synchronized (this) {
+            PackedPath outline = this.map.get(key);
+            if (outline != null) {
+                this.hitCount++;
+                return outline;
+            }
+            this.missCount++;
+        }
+        PackedPath outline = PackedPath.of(stroke.createStrokedShape(shape));
+        int cost = scratch.getSegmentCount() + outline.getSegmentCount();
+        if (cost > this.maxSegments) {
+            return outline;
+        }
+        synchronized (this) {
+            PackedPath previous = this.map.put(new Key(stroke, 
+                    scratch.copy()), outline);
+            if (previous != null) {
+                this.segmentCount -= scratch.getSegmentCount() 
+                        + previous.getSegmentCount();
+            }
+            this.segmentCount += cost;
+            Iterator<Map.Entry<Key, PackedPath>> iterator 
+                    = this.map.entrySet().iterator();
+            while (this.segmentCount > this.maxSegments) {
+                Map.Entry<Key, PackedPath> eldest = iterator.next();
+                this.segmentCount -= eldest.getKey().path.getSegmentCount()
+                        + eldest.getValue().getSegmentCount();
+                iterator.remove();
+            }
+        }
+        return outline;
+    }
+
+    /**
+     * Removes all entries from the cache.
+     */
+    synchronized void clear() {
+        this.map.clear();
+        this.segmentCount = 0;
+    }
+
+    /**
+     * Returns the number of entries in the cache.
+     * 
+     * @return The number of entries. 
+     */
+    synchronized int size() {
+        return this.map.size();
+    }
+
+    /**
+     * Returns the total number of segments in the cached keys and outlines.
+     * 
+     * @return The segment count.
+     */
+    synchronized int getSegmentCount() {
+        return this.segmentCount;
+    }
+
+    /**
+     * Returns the number of lookups that found a cached outline.
+     * 
+     * @return The hit count. 
+     */
+    synchronized long getHitCount() {
+        return this.hitCount;
+    }
+
+    /**
+     * Returns the number of lookups that did not find a cached outline.
+     * 
+     * @return The miss count. 
+     */
+    synchronized long getMissCount() {
+        return this.missCount;
+    }
+
+    /**
+     * The cache key (a stroke and the geometry of a shape).
+     */
+    private static final class Key {
+
+        private final Stroke stroke;
+
+        private final PackedPath path;
+
+        Key(Stroke stroke, PackedPath path) {
+            this.stroke = stroke;
+            this.path = path;
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * this.stroke.hashCode() + this.path.hashCode();
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (obj == this) {
+                return true;
+            }
+            if (!(obj instanceof Key)) {
+                return false;
+            }
+            Key that = (Key) obj;
+            return Objects.equals(this.stroke, that.stroke) 
+                    && this.path.equals(that.path);
+        }
+    }
+
+}
@@ -0,0 +1,458 @@
+/* ============
+ * FXGraphics2D
+ * ============
+ * 
+ * (C)opyright 2014-present, by David Gilbert.
+ * 
+ * https://github.com/jfree/fxgraphics2d
+ *
+ * The FXGraphics2D class has been developed by David Gilbert for
+ * use in Orson Charts (https://github.com/jfree/orson-charts) and
+ * JFreeChart (http://www.jfree.org/jfreechart).  It may be useful for other
+ * code that uses the Graphics2D API provided by Java2D.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *   - Redistributions of source code must retain the above copyright
+ *     notice, this list of conditions and the following disclaimer.
+ *   - Redistributions in binary form must reproduce the above copyright
+ *     notice, this list of conditions and the following disclaimer in the
+ *     documentation and/or other materials provided with the distribution.
+ *   - Neither the name of JFree.org nor the names of its contributors may
+ *     be used to endorse or promote products derived from this software
+ *     without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF
+ * THE POSSIBILITY OF SUCH DAMAGE.
+ * 
+ */
+package org.jfree.fx;
+
+import java.awt.Font;
+import java.awt.Paint;
+import java.awt.font.FontRenderContext;
+import java.awt.font.LineMetrics;
+import java.awt.font.TextAttribute;
+import java.awt.geom.Rectangle2D;
+import java.text.AttributedCharacterIterator;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * The text from an {@code AttributedCharacterIterator}, split into runs 
+ * that each have a single style (font, foreground, background, underline
+ * and strikethrough).  Each run can be drawn with a single call to 
+ * {@code GraphicsContext.fillText()}.  Text with attributes that cannot be
+ * expressed this way (for example, superscripts, transforms or input method 
+ * highlights) is not handled (see {@link #parse(AttributedCharacterIterator)}).
+ * <p>
+ * Measured instances are retained in a small LRU cache (see 
+ * {@link #get(AttributedCharacterIterator)}), since the same rich text is
+ * often drawn repeatedly.  The cache is keyed on the text, the run limits
+ * and the raw attribute values (see {@link Key}), so a lookup does not 
+ * create fonts or runs.
+ */
+final class StyledText {
+
+    /** The maximum number of entries in the cache. */
+    private static final int MAX_CACHE_SIZE = 256;
+
+    /** The attributes that are supported, in the order used by keys. */
+    private static final TextAttribute[] KEY_ATTRIBUTES = {
+        TextAttribute.FAMILY, TextAttribute.WEIGHT, TextAttribute.POSTURE,
+        TextAttribute.SIZE, TextAttribute.FONT, TextAttribute.FOREGROUND,
+        TextAttribute.BACKGROUND, TextAttribute.UNDERLINE, 
+        TextAttribute.STRIKETHROUGH };
+
+    /** The attributes that are supported. */
+    private static final Set<TextAttribute> SUPPORTED_ATTRIBUTES 
+            = Set.of(KEY_ATTRIBUTES);
+
+    /** The measured instances, in access order. */
+    private static final Map<Key, StyledText> CACHE 
+            = new LinkedHashMap<Key, StyledText>(64, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(
+                Map.Entry<Key, StyledText> eldest) {
+            return size() > MAX_CACHE_SIZE;
+        }
+    };
+
+    /** The font render context used for line metrics. */
+    private static final FontRenderContext FRC = new FontRenderContext(null, 
+            false, true);
+
+    /** The text. */
+    final String text;
+
+    /** The runs. */
+    final Run[] runs;
+
+    private StyledText(String text, Run[] runs) {
+        this.text = text;
+        this.runs = runs;
+    }
+
+    /**
+     * Returns the measured styled text for the iterator, or {@code null} if 
+     * the iterator has attributes that are not supported.  A cache hit 
+     * costs one pass over the characters and runs of the iterator to build
+     * the key; the fonts and runs are only created on a miss.
+     * 
+     * @param iterator  the iterator ({@code null} not permitted).
+     * 
+     * @return The styled text (possibly {@code null}). 
+     */
+    static StyledText get(AttributedCharacterIterator iterator) {
+        if (!SUPPORTED_ATTRIBUTES.containsAll(
+                iterator.getAllAttributeKeys())) {
+            return null;
+        }
+        Key key = Key.of(iterator);
+        synchronized (CACHE) {
+            StyledText result = CACHE.get(key);
+            if (result != null) {
+                return result;
+            }
+        }
+        StyledText parsed = parse(iterator);
+        if (parsed == null) {
+            return null;
+        }
+        parsed.measure();
+        synchronized (CACHE) {
+            CACHE.put(key, parsed);
+        }
+        return parsed;
+    }
+
+    /**
+     * Splits the text from the iterator into style runs.  The runs are not
+     * measured.
+     * 
+     * @param iterator  the iterator ({@code null} not permitted).
+     * 
+     * @return The styled text, or {@code null} if the iterator has 
+     *     attributes that are not supported.
+     */
+    static StyledText parse(AttributedCharacterIterator iterator) {
+        final int begin = iterator.getBeginIndex();
+        final int end = iterator.getEndIndex();
+        StringBuilder sb = new StringBuilder(end - begin);
+        List<Run> runs = new ArrayList<>();
+        int start = begin;
+        while (start < end) {
+            iterator.setIndex(start);
+            int limit = iterator.getRunLimit();
+            Run run = createRun(iterator.getAttributes(), start - begin, 
+                    limit - begin);
+            if (run == null) {
+                return null;
+            }
+            runs.add(run);
+            for (char c = iterator.current(); iterator.getIndex() < limit; 
+                    c = iterator.next()) {
+                sb.append(c);
+            }
+            start = limit;
+        }
+        return new StyledText(sb.toString(), runs.toArray(new Run[0]));
+    }
+
+    /**
+     * Creates a run for a set of attributes.
+     * 
+     * @param attributes  the attributes.
+     * @param start  the start index of the run in the text.
+     * @param limit  the limit of the run in the text.
+     * 
+     * @return The run, or {@code null} if there is an attribute that is not
+     *     supported.
+     */
+    private static Run createRun(
+            Map<AttributedCharacterIterator.Attribute, Object> attributes, 
+            int start, int limit) {
+        Map<TextAttribute, Object> fontAttributes = new HashMap<>();
+        Paint foreground = null;
+        Paint background = null;
+        boolean underline = false;
+        boolean strikethrough = false;
+        for (Map.Entry<AttributedCharacterIterator.Attribute, Object> entry 
+                : attributes.entrySet()) {
+            AttributedCharacterIterator.Attribute key = entry.getKey();
+            Object value = entry.getValue();
+            if (value == null) {
+                continue;
+            }
+            if (key == TextAttribute.FAMILY || key == TextAttribute.WEIGHT
+                    || key == TextAttribute.POSTURE 
+                    || key == TextAttribute.SIZE 
+                    || key == TextAttribute.FONT) {
+                fontAttributes.put((TextAttribute) key, value);
+            } else if (key == TextAttribute.FOREGROUND 
+                    && value instanceof Paint) {
+                foreground = (Paint) value;
+            } else if (key == TextAttribute.BACKGROUND 
+                    && value instanceof Paint) {
+                background = (Paint) value;
+            } else if (key == TextAttribute.UNDERLINE 
+                    && TextAttribute.UNDERLINE_ON.equals(value)) {
+                underline = true;
+            } else if (key == TextAttribute.STRIKETHROUGH 
+                    && value instanceof Boolean) {
+                strikethrough = (Boolean) value;
+            } else {
+                return null;
+            }
+        }
+        Font font = Font.getFont(fontAttributes);
+        if (font.isTransformed()) {
+            return null;
+        }
+        return new Run(start, limit, font, foreground, background, underline,
+                strikethrough);
+    }
+
+    /**
+     * Measures the runs, using JavaFX font metrics for the run widths (to
+     * match the text drawn by JavaFX) and Java2D line metrics for the 
+     * decorations.
+     */
+    private void measure() {
+        Rectangle2D bounds = new Rectangle2D.Double();
+        double x = 0.0;
+        for (Run run : this.runs) {
+            FXFontMetrics fm = (FXFontMetrics) FontMetricsPool.get(run.font, 
+                    true);
+            fm.getTextBounds(this.text, run.start, run.limit, bounds);
+            LineMetrics lm = run.font.getLineMetrics(this.text, run.start, 
+                    run.limit, FRC);
+            run.text = this.text.substring(run.start, run.limit);
+            run.x = x;
+            run.width = bounds.getWidth();
+            run.ascent = lm.getAscent();
+            run.descent = lm.getDescent();
+            run.underlineOffset = lm.getUnderlineOffset();
+            run.underlineThickness = lm.getUnderlineThickness();
+            run.strikethroughOffset = lm.getStrikethroughOffset();
+            run.strikethroughThickness = lm.getStrikethroughThickness();
+            x += run.width;
+        }
+    }
+
+    @Override
+    public int hashCode() {
+        int h = this.text.hashCode();
+        for (Run run : this.runs) {
+            h = 31 * h + run.hashCode();
+        }
+        return h;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (obj == this) {
+            return true;
+        }
+        if (!(obj instanceof StyledText)) {
+            return false;
+        }
+        StyledText that = (StyledText) obj;
+        if (!this.text.equals(that.text) 
+                || this.runs.length != that.runs.length) {
+            return false;
+        }
+        for (int i = 0; i < this.runs.length; i++) {
+            if (!this.runs[i].equals(that.runs[i])) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * A cache key for the content of an iterator: the text, the run limits
+     * and, for each run, the values of the supported attributes.  Building
+     * a key reads the attribute values without interpreting them, and the
+     * values are compared with {@code equals()} (which is an identity test
+     * for the values that are shared by an unchanged attributed string).
+     */
+    static final class Key {
+
+        /** The text. */
+        private final String text;
+
+        /** The limit of each run (relative to the start of the text). */
+        private final int[] limits;
+
+        /** The attribute values, {@code KEY_ATTRIBUTES.length} per run. */
+        private final Object[] values;
+
+        /** The hash code. */
+        private final int hash;
+
+        private Key(String text, int[] limits, Object[] values) {
+            this.text = text;
+            this.limits = limits;
+            this.values = values;
+            this.hash = 31 * (31 * text.hashCode() 
+                    + Arrays.hashCode(limits)) + Arrays.hashCode(values);
+        }
+
+        /**
+         * Creates a key for the content of the iterator.
+         * 
+         * @param iterator  the iterator ({@code null} not permitted).
+         * 
+         * @return The key (never {@code null}). 
+         */
+        static Key of(AttributedCharacterIterator iterator) {
+            final int begin = iterator.getBeginIndex();
+            final int end = iterator.getEndIndex();
+            final char[] chars = new char[end - begin];
+            int runCount = 0;
+            int[] limits = new int[4];
+            Object[] values = new Object[4 * KEY_ATTRIBUTES.length];
+            int start = begin;
+            while (start < end) {
+                iterator.setIndex(start);
+                final int limit = iterator.getRunLimit();
+                if (runCount == limits.length) {
+                    limits = Arrays.copyOf(limits, runCount * 2);
+                    values = Arrays.copyOf(values, 
+                            runCount * 2 * KEY_ATTRIBUTES.length);
+                }
+                limits[runCount] = limit - begin;
+                final int base = runCount * KEY_ATTRIBUTES.length;
+                for (int i = 0; i < KEY_ATTRIBUTES.length; i++) {
+                    values[base + i] = iterator.getAttribute(
+                            KEY_ATTRIBUTES[i]);
+                }
+                runCount++;
+                for (char c = iterator.current(); iterator.getIndex() < limit;
+                        c = iterator.next()) {
+                    chars[iterator.getIndex() - begin] = c;
+                }
+                start = limit;
+            }
+            return new Key(new String(chars), 
+                    Arrays.copyOf(limits, runCount), 
+                    Arrays.copyOf(values, runCount * KEY_ATTRIBUTES.length));
+        }
+
+        @Override
+        public int hashCode() {
+            return this.hash;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (obj == this) {
+                return true;
+            }
+            if (!(obj instanceof Key)) {
+                return false;
+            }
+            Key that = (Key) obj;
+            return this.hash == that.hash && this.text.equals(that.text)
+                    && Arrays.equals(this.limits, that.limits)
+                    && Arrays.equals(this.values, that.values);
+        }
+    }
+
+    /**
+     * A run of text with a single style.  The measurements are in user 
+     * space, relative to the origin of the text.
+     */
+    static final class Run {
+
+        /** The start index in the text. */
+        final int start;
+
+        /** The limit index in the text. */
+        final int limit;
+
+        /** The font. */
+        final Font font;
+
+        /** The foreground ({@code null} for the current paint). */
+        final Paint foreground;
+
+        /** The background ({@code null} for none). */
+        final Paint background;
+
+        /** A flag for underlining. */
+        final boolean underline;
+
+        /** A flag for strikethrough. */
+        final boolean strikethrough;
+
+        String text;
+
+        double x;
+
+        double width;
+
+        double ascent;
+
+        double descent;
+
+        double underlineOffset;
+
+        double underlineThickness;
+
+        double strikethroughOffset;
+
+        double strikethroughThickness;
+
+        Run(int start, int limit, Font font, Paint foreground, 
+                Paint background, boolean underline, boolean strikethrough) {
+            this.start = start;
+            this.limit = limit;
+            this.font = font;
+            this.foreground = foreground;
+            this.background = background;
+            this.underline = underline;
+            this.strikethrough = strikethrough;
+        }
+
+        @Override
+        public int hashCode() {
+            int h = 31 * this.start + this.limit;
+            return 31 * h + this.font.hashCode();
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (obj == this) {
+                return true;
+            }
+            if (!(obj instanceof Run)) {
+                return false;
+            }
+            Run that = (Run) obj;
+            return this.start == that.start && this.limit == that.limit
+                    && this.underline == that.underline 
+                    && this.strikethrough == that.strikethrough
+                    && this.font.equals(that.font)
+                    && Objects.equals(this.foreground, that.foreground)
+                    && Objects.equals(this.background, that.background);
+        }
+    }
+
+}
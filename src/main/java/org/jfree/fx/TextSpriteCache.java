@@ -0,0 +1,332 @@
+/* ============
+ * FXGraphics2D
+ * ============
+ * 
+ * (C)opyright 2014-present, by David Gilbert.
+ * 
+ * https://github.com/jfree/fxgraphics2d
+ *
+ * The FXGraphics2D class has been developed by David Gilbert for
+ * use in Orson Charts (https://github.com/jfree/orson-charts) and
+ * JFreeChart (http://www.jfree.org/jfreechart).  It may be useful for other
+ * code that uses the Graphics2D API provided by Java2D.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *   - Redistributions of source code must retain the above copyright
+ *     notice, this list of conditions and the following disclaimer.
+ *   - Redistributions in binary form must reproduce the above copyright
+ *     notice, this list of conditions and the following disclaimer in the
+ *     documentation and/or other materials provided with the distribution.
+ *   - Neither the name of JFree.org nor the names of its contributors may
+ *     be used to endorse or promote products derived from this software
+ *     without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF
+ * THE POSSIBILITY OF SUCH DAMAGE.
+ * 
+ */
+package org.jfree.fx;
+
+import java.awt.Color;
+import java.awt.Font;
+import java.awt.geom.AffineTransform;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import javafx.geometry.Bounds;
+import javafx.scene.SnapshotParameters;
+import javafx.scene.image.WritableImage;
+import javafx.scene.text.Text;
+import javafx.scene.transform.Affine;
+
+/**
+ * A cache of rasterized strings (sprites), keyed by the string, font, color
+ * and the linear part of the device transform (so rotated and scaled text
+ * is rasterized at its final orientation and size).  A string is only 
+ * rasterized the second time it is requested, so that strings that are 
+ * drawn once do not pay for the rasterization.  The cache is limited by the
+ * total memory of the sprite images, with the least recently used sprites 
+ * evicted first.
+ * <p>
+ * Rasterization uses {@code Node.snapshot()}, so sprites can only be 
+ * created on the JavaFX application thread.
+ */
+final class TextSpriteCache {
+
+    /** The default limit for the total memory of the sprite images. */
+    static final long DEFAULT_MAX_BYTES = 16L * 1024 * 1024;
+
+    /** A cache that is shared by all {@code FXGraphics2D} instances. */
+    static final TextSpriteCache SHARED = new TextSpriteCache(
+            DEFAULT_MAX_BYTES, TextSpriteCache::snapshot);
+
+    /**
+     * A function that rasterizes a string.
+     */
+    interface Rasterizer {
+
+        /**
+         * Returns a sprite for the string.
+         * 
+         * @param text  the text.
+         * @param font  the font.
+         * @param color  the color.
+         * @param m00  the x-scale of the transform.
+         * @param m10  the y-shear of the transform.
+         * @param m01  the x-shear of the transform.
+         * @param m11  the y-scale of the transform.
+         * 
+         * @return The sprite (never {@code null}). 
+         */
+        Sprite rasterize(String text, Font font, Color color, double m00, 
+                double m10, double m01, double m11);
+    }
+
+    /** The limit for the total memory of the sprite images. */
+    private final long maxBytes;
+
+    /** The rasterizer. */
+    private final Rasterizer rasterizer;
+
+    /** The sprites, in access order. */
+    private final LinkedHashMap<Key, Sprite> sprites;
+
+    /** Keys that have been requested once but not rasterized. */
+    private final LinkedHashMap<Key, Boolean> seen;
+
+    /** The key used for lookups. */
+    private final Key lookupKey = new Key();
+
+    /** The total memory of the sprite images. */
+    private long byteCount;
+
+    /** The number of lookups that returned a cached sprite. */
+    private long hitCount;
+
+    /** The number of lookups that did not return a cached sprite. */
+    private long missCount;
+
+    /**
+     * Creates a new cache.
+     * 
+     * @param maxBytes  the limit for the total memory of the sprite images.
+     * @param rasterizer  the rasterizer ({@code null} not permitted).
+     */
+    TextSpriteCache(long maxBytes, Rasterizer rasterizer) {
+        this.maxBytes = maxBytes;
+        this.rasterizer = rasterizer;
+        this.sprites = new LinkedHashMap<>(64, 0.75f, true);
+        this.seen = new LinkedHashMap<Key, Boolean>(64, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Key, Boolean> e) {
+                return size() > 1024;
+            }
+        };
+    }
+
+    /**
+     * Returns the sprite for a string, or {@code null} if the string has 
+     * not been requested before (in which case the caller should draw the 
+     * string directly).
+     * 
+     * @param text  the text ({@code null} not permitted).
+     * @param font  the font ({@code null} not permitted).
+     * @param color  the color ({@code null} not permitted).
+     * @param t  the device transform ({@code null} not permitted, only the
+     *     linear part is used).
+     * 
+     * @return The sprite (possibly {@code null}). 
+     */
+    synchronized Sprite get(String text, Font font, Color color, 
+            AffineTransform t) {
+        Key key = this.lookupKey.set(text, font, color.getRGB(), 
+                t.getScaleX(), t.getShearY(), t.getShearX(), t.getScaleY());
+        Sprite sprite = this.sprites.get(key);
+        if (sprite != null) {
+            this.hitCount++;
+            return sprite;
+        }
+        this.missCount++;
+        if (this.seen.remove(key) == null) {
+            this.seen.put(key.copy(), Boolean.TRUE);
+            return null;
+        }
+        sprite = this.rasterizer.rasterize(text, font, color, key.m00, 
+                key.m10, key.m01, key.m11);
+        if (sprite.byteCount > this.maxBytes) {
+            return sprite;
+        }
+        this.sprites.put(key.copy(), sprite);
+        this.byteCount += sprite.byteCount;
+        Iterator<Sprite> iterator = this.sprites.values().iterator();
+        while (this.byteCount > this.maxBytes) {
+            this.byteCount -= iterator.next().byteCount;
+            iterator.remove();
+        }
+        return sprite;
+    }
+
+    /**
+     * Removes all sprites from the cache.
+     */
+    synchronized void clear() {
+        this.sprites.clear();
+        this.seen.clear();
+        this.byteCount = 0;
+    }
+
+    /**
+     * Returns the number of sprites in the cache.
+     * 
+     * @return The number of sprites. 
+     */
+    synchronized int size() {
+        return this.sprites.size();
+    }
+
+    /**
+     * Returns the total memory of the sprite images.
+     * 
+     * @return The memory in bytes. 
+     */
+    synchronized long getByteCount() {
+        return this.byteCount;
+    }
+
+    /**
+     * Returns the number of lookups that returned a cached sprite.
+     * 
+     * @return The hit count. 
+     */
+    synchronized long getHitCount() {
+        return this.hitCount;
+    }
+
+    /**
+     * Returns the number of lookups that did not return a cached sprite.
+     * 
+     * @return The miss count. 
+     */
+    synchronized long getMissCount() {
+        return this.missCount;
+    }
+
+    /**
+     * Rasterizes a string with a snapshot of a {@code Text} node.  This must
+     * be called on the JavaFX application thread.
+     */
+    private static Sprite snapshot(String str, Font font, Color color, 
+            double m00, double m10, double m01, double m11) {
+        Text text = new Text(str);
+        text.setFont(FontCache.SHARED.get(font));
+        text.setFill(ColorCache.SHARED.get(color));
+        text.getTransforms().add(new Affine(m00, m01, 0.0, m10, m11, 0.0));
+        SnapshotParameters params = new SnapshotParameters();
+        params.setFill(javafx.scene.paint.Color.TRANSPARENT);
+        WritableImage image = text.snapshot(params, null);
+        Bounds b = text.getBoundsInParent();
+        return new Sprite(image, b.getMinX(), b.getMinY(), 
+                4L * (long) image.getWidth() * (long) image.getHeight());
+    }
+
+    /**
+     * A rasterized string.
+     */
+    static final class Sprite {
+
+        /** The image. */
+        final javafx.scene.image.Image image;
+
+        /** The x-offset of the image from the text origin, in pixels. */
+        final double offsetX;
+
+        /** The y-offset of the image from the text origin, in pixels. */
+        final double offsetY;
+
+        /** The memory used by the image. */
+        final long byteCount;
+
+        Sprite(javafx.scene.image.Image image, double offsetX, 
+                double offsetY, long byteCount) {
+            this.image = image;
+            this.offsetX = offsetX;
+            this.offsetY = offsetY;
+            this.byteCount = byteCount;
+        }
+    }
+
+    /**
+     * The cache key.
+     */
+    private static final class Key {
+
+        String text;
+
+        Font font;
+
+        int argb;
+
+        double m00;
+
+        double m10;
+
+        double m01;
+
+        double m11;
+
+        Key set(String text, Font font, int argb, double m00, double m10, 
+                double m01, double m11) {
+            this.text = text;
+            this.font = font;
+            this.argb = argb;
+            this.m00 = m00;
+            this.m10 = m10;
+            this.m01 = m01;
+            this.m11 = m11;
+            return this;
+        }
+
+        Key copy() {
+            return new Key().set(this.text, this.font, this.argb, this.m00, 
+                    this.m10, this.m01, this.m11);
+        }
+
+        @Override
+        public int hashCode() {
+            int h = this.text.hashCode();
+            h = 31 * h + this.font.hashCode();
+            h = 31 * h + this.argb;
+            h = 31 * h + Double.hashCode(this.m00);
+            h = 31 * h + Double.hashCode(this.m10);
+            h = 31 * h + Double.hashCode(this.m01);
+            return 31 * h + Double.hashCode(this.m11);
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (obj == this) {
+                return true;
+            }
+            if (!(obj instanceof Key)) {
+                return false;
+            }
+            Key that = (Key) obj;
+            return this.argb == that.argb && this.m00 == that.m00 
+                    && this.m10 == that.m10 && this.m01 == that.m01 
+                    && this.m11 == that.m11 && this.text.equals(that.text) 
+                    && Objects.equals(this.font, that.font);
+        }
+    }
+
+}
@@ -0,0 +1,159 @@
+/* ============
+ * FXGraphics2D
+ * ============
+ * 
+ * (C)opyright 2014-present, by David Gilbert.
+ * 
+ * https://github.com/jfree/fxgraphics2d
+ *
+ * The FXGraphics2D class has been developed by David Gilbert for
+ * use in Orson Charts (https://github.com/jfree/orson-charts) and
+ * JFreeChart (http://www.jfree.org/jfreechart).  It may be useful for other
+ * code that uses the Graphics2D API provided by Java2D.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *   - Redistributions of source code must retain the above copyright
+ *     notice, this list of conditions and the following disclaimer.
+ *   - Redistributions in binary form must reproduce the above copyright
+ *     notice, this list of conditions and the following disclaimer in the
+ *     documentation and/or other materials provided with the distribution.
+ *   - Neither the name of JFree.org nor the names of its contributors may
+ *     be used to endorse or promote products derived from this software
+ *     without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF
+ * THE POSSIBILITY OF SUCH DAMAGE.
+ * 
+ */
+package org.jfree.fx;
+
+import java.awt.TexturePaint;
+import java.awt.geom.Rectangle2D;
+import java.awt.image.BufferedImage;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.WeakHashMap;
+import javafx.embed.swing.SwingFXUtils;
+import javafx.scene.image.WritableImage;
+import javafx.scene.paint.ImagePattern;
+
+/**
+ * A cache of the JavaFX image patterns created for {@link TexturePaint} 
+ * instances.  Entries are keyed on the identity of the texture image (held
+ * weakly, so that images can be garbage collected) and on the anchor 
+ * rectangle.  Note that modifying the pixels of a texture image after it has
+ * been used will not be detected.  A single instance is shared by all 
+ * {@link FXGraphics2D} instances.
+ */
+final class TextureCache {
+
+    /** The shared instance. */
+    static final TextureCache SHARED = new TextureCache();
+
+    /** The maximum number of anchor rectangles cached per image. */
+    private static final int MAX_ANCHORS_PER_IMAGE = 8;
+
+    /** 
+     * The entries, keyed by texture image (BufferedImage does not override
+     * equals(), so this is effectively an identity map).
+     */
+    private final Map<BufferedImage, Entry> entries = new WeakHashMap<>();
+
+    /** The number of lookups that found a cached pattern. */
+    private long hitCount;
+
+    /** The number of lookups that required a new pattern to be created. */
+    private long missCount;
+
+    /**
+     * Returns a JavaFX image pattern equivalent to the specified texture 
+     * paint, creating it if necessary.
+     *
+     * @param paint  the paint ({@code null} not permitted).
+     *
+     * @return An image pattern (never {@code null}).
+     */
+    synchronized ImagePattern get(TexturePaint paint) {
+        BufferedImage textureImage = paint.getImage();
+        Rectangle2D anchor = paint.getAnchorRect();
+        Entry entry = this.entries.get(textureImage);
+        if (entry == null) {
+            entry = new Entry(SwingFXUtils.toFXImage(textureImage, null));
+            this.entries.put(textureImage, entry);
+        }
+        ImagePattern result = entry.patterns.get(anchor);
+        if (result != null) {
+            this.hitCount++;
+            return result;
+        }
+        this.missCount++;
+        result = new ImagePattern(entry.image, anchor.getX(), anchor.getY(),
+                anchor.getWidth(), anchor.getHeight(), false);
+        entry.patterns.put(anchor, result);
+        return result;
+    }
+
+    /**
+     * Returns the number of texture images in the cache.
+     *
+     * @return The number of images.
+     */
+    synchronized int size() {
+        return this.entries.size();
+    }
+
+    /**
+     * Returns the number of lookups that were satisfied from the cache.
+     *
+     * @return The hit count.
+     */
+    synchronized long getHitCount() {
+        return this.hitCount;
+    }
+
+    /**
+     * Returns the number of lookups that required a new image pattern to be
+     * created.
+     *
+     * @return The miss count.
+     */
+    synchronized long getMissCount() {
+        return this.missCount;
+    }
+
+    /**
+     * The converted image for one texture, plus the patterns created for it.
+     * This must not reference the texture image, otherwise the weak key 
+     * would never be cleared.
+     */
+    private static final class Entry {
+
+        /** The JavaFX copy of the texture image. */
+        final WritableImage image;
+
+        /** The patterns, keyed by anchor rectangle. */
+        final Map<Rectangle2D, ImagePattern> patterns 
+                = new LinkedHashMap<Rectangle2D, ImagePattern>(4, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(
+                    Map.Entry<Rectangle2D, ImagePattern> eldest) {
+                return size() > MAX_ANCHORS_PER_IMAGE;
+            }
+        };
+
+        Entry(WritableImage image) {
+            this.image = image;
+        }
+    }
+
+}
@@ -0,0 +1,905 @@
+/* ============
+ * FXGraphics2D
+ * ============
+ * 
+ * (C)opyright 2014-present, by David Gilbert.
+ * 
+ * https://github.com/jfree/fxgraphics2d
+ *
+ * The FXGraphics2D class has been developed by David Gilbert for
+ * use in Orson Charts (https://github.com/jfree/orson-charts) and
+ * JFreeChart (http://www.jfree.org/jfreechart).  It may be useful for other
+ * code that uses the Graphics2D API provided by Java2D.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *   - Redistributions of source code must retain the above copyright
+ *     notice, this list of conditions and the following disclaimer.
+ *   - Redistributions in binary form must reproduce the above copyright
+ *     notice, this list of conditions and the following disclaimer in the
+ *     documentation and/or other materials provided with the distribution.
+ *   - Neither the name of JFree.org nor the names of its contributors may
+ *     be used to endorse or promote products derived from this software
+ *     without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF
+ * THE POSSIBILITY OF SUCH DAMAGE.
+ * 
+ */
+
+package org.jfree.fx;
+
+import java.awt.BasicStroke;
+import java.awt.Color;
+import java.awt.Font;
+import java.awt.FontMetrics;
+import java.awt.Graphics2D;
+import java.awt.Shape;
+import java.awt.GradientPaint;
+import java.awt.LinearGradientPaint;
+import java.awt.Stroke;
+import java.awt.TexturePaint;
+import java.awt.font.FontRenderContext;
+import java.awt.font.GlyphVector;
+import java.awt.font.TextAttribute;
+import java.awt.geom.AffineTransform;
+import java.awt.geom.Ellipse2D;
+import java.awt.geom.Line2D;
+import java.awt.geom.Path2D;
+import java.awt.geom.Point2D;
+import java.awt.geom.Rectangle2D;
+import java.awt.image.BufferedImage;
+import java.text.AttributedString;
+import java.util.List;
+import javafx.scene.canvas.Canvas;
+import javafx.scene.canvas.GraphicsContext;
+import javafx.scene.paint.ImagePattern;
+import javafx.scene.shape.FillRule;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for features that are specific to {@link FXGraphics2D} (caches and
+ * other optimisations that have no equivalent in the reference 
+ * implementation).
+ */
+public class TestFXGraphics2D {
+
+    /**
+     * The color cache returns the same JavaFX color for equal AWT colors and
+     * keeps count of hits and misses.
+     */
+    @Test
+    public void checkColorCache() {
+        ColorCache cache = new ColorCache(16);
+        javafx.scene.paint.Color c1 = cache.get(new Color(1, 2, 3, 4));
+        assertEquals(javafx.scene.paint.Color.rgb(1, 2, 3, 4 / 255.0), c1);
+        assertSame(c1, cache.get(new Color(1, 2, 3, 4)));
+        assertEquals(1, cache.getHitCount());
+        assertEquals(1, cache.getMissCount());
+
+        // transparent black has an ARGB value of zero, which must still work
+        javafx.scene.paint.Color c2 = cache.get(new Color(0, 0, 0, 0));
+        assertEquals(javafx.scene.paint.Color.TRANSPARENT, c2);
+        assertSame(c2, cache.get(new Color(0, 0, 0, 0)));
+
+        // the cache is bounded
+        for (int i = 0; i < 100; i++) {
+            assertEquals(javafx.scene.paint.Color.rgb(i, 0, 0), 
+                    cache.get(new Color(i, 0, 0)));
+        }
+        assertTrue(cache.size() <= 12);
+    }
+
+    /**
+     * Gradient paints are converted once, and equivalent gradients relative
+     * to different bounds share the same proportional gradient.
+     */
+    @Test
+    public void checkGradientCache() {
+        GradientCache cache = new GradientCache(4);
+        GradientCache.Key k1 = new GradientCache.Key();
+        k1.set(new GradientPaint(0f, 0f, Color.RED, 10f, 0f, Color.BLUE));
+        javafx.scene.paint.Paint p1 = cache.get(k1);
+        GradientCache.Key k2 = new GradientCache.Key();
+        k2.set(new LinearGradientPaint(0f, 0f, 10f, 0f, new float[] {0f, 1f},
+                new Color[] {Color.RED, Color.BLUE}));
+        assertEquals(k1, k2);
+        assertSame(p1, cache.get(k2));
+        assertEquals(1, cache.getHitCount());
+
+        // two bars with the same gradient relative to their own bounds
+        GradientCache.Key bar1 = new GradientCache.Key();
+        bar1.setProportional(k1, 0.0, 0.0, 10.0, 5.0);
+        k2.set(new GradientPaint(20f, 10f, Color.RED, 40f, 10f, Color.BLUE));
+        GradientCache.Key bar2 = new GradientCache.Key();
+        bar2.setProportional(k2, 20.0, 10.0, 20.0, 8.0);
+        assertEquals(bar1, bar2);
+        assertSame(cache.get(bar1), cache.get(bar2));
+        assertNotSame(p1, cache.get(bar1));
+
+        // keys remember the paint they were set from
+        GradientPaint gp = new GradientPaint(0f, 0f, Color.RED, 10f, 0f, 
+                Color.BLUE);
+        k1.set(gp);
+        assertSame(gp, k1.getSource());
+        assertNull(bar1.getSource());
+    }
+
+    /**
+     * Texture paints with the same image and anchor share one image 
+     * pattern, and the anchor rectangle is respected.
+     */
+    @Test
+    public void checkTextureCache() {
+        TextureCache cache = new TextureCache();
+        BufferedImage img = new BufferedImage(4, 4, BufferedImage.TYPE_INT_ARGB);
+        ImagePattern p1 = cache.get(new TexturePaint(img, 
+                new Rectangle2D.Double(1, 2, 8, 8)));
+        assertEquals(1.0, p1.getX());
+        assertEquals(2.0, p1.getY());
+        assertEquals(8.0, p1.getWidth());
+        assertSame(p1, cache.get(new TexturePaint(img, 
+                new Rectangle2D.Double(1, 2, 8, 8))));
+        ImagePattern p2 = cache.get(new TexturePaint(img, 
+                new Rectangle2D.Double(0, 0, 4, 4)));
+        assertNotSame(p1, p2);
+        assertSame(p1.getImage(), p2.getImage());
+        assertEquals(1, cache.size());
+        assertEquals(1, cache.getHitCount());
+        assertEquals(2, cache.getMissCount());
+    }
+
+    /**
+     * Attribute changes are only pushed to the graphics context when 
+     * something is drawn.
+     */
+    @Test
+    public void checkDeferredStateSynchronization() {
+        GraphicsContext gc = new Canvas(100, 100).getGraphicsContext2D();
+        FXGraphics2D g2 = new FXGraphics2D(gc);
+        g2.setPaint(Color.RED);
+        g2.setStroke(new BasicStroke(3.0f));
+        assertEquals(javafx.scene.paint.Color.BLACK, gc.getFill());
+        assertEquals(1.0, gc.getLineWidth());
+        g2.fillRect(0, 0, 10, 10);
+        assertEquals(javafx.scene.paint.Color.RED, gc.getFill());
+        assertEquals(1.0, gc.getLineWidth());
+        g2.drawLine(0, 0, 10, 10);
+        assertEquals(javafx.scene.paint.Color.RED, gc.getStroke());
+        assertEquals(3.0, gc.getLineWidth());
+    }
+
+    /**
+     * A copy created with {@code create()} shares the graphics context, so
+     * the original must restore its own attributes after the copy has drawn.
+     */
+    @Test
+    public void checkStateAfterDrawingWithCopy() {
+        GraphicsContext gc = new Canvas(100, 100).getGraphicsContext2D();
+        FXGraphics2D g2 = new FXGraphics2D(gc);
+        g2.setPaint(Color.RED);
+        g2.fillRect(0, 0, 10, 10);
+        FXGraphics2D copy = (FXGraphics2D) g2.create();
+        copy.setPaint(Color.BLUE);
+        copy.setClip(0, 0, 5, 5);
+        copy.fillRect(0, 0, 10, 10);
+        assertEquals(javafx.scene.paint.Color.BLUE, gc.getFill());
+        copy.dispose();
+        g2.fillRect(0, 0, 10, 10);
+        assertEquals(javafx.scene.paint.Color.RED, gc.getFill());
+        copy = (FXGraphics2D) g2.create();
+        copy.setPaint(Color.GREEN);
+        copy.fillRect(0, 0, 10, 10);
+        g2.fillRect(0, 0, 10, 10);
+        assertEquals(javafx.scene.paint.Color.RED, gc.getFill());
+    }
+
+    /**
+     * Equal strokes share their converted line attributes, and zero width
+     * strokes use the substitute width.
+     */
+    @Test
+    public void checkLineAttributes() {
+        float[] dashes = new float[] {4f, 2f};
+        LineAttributes la1 = LineAttributes.of(new BasicStroke(2f, 
+                BasicStroke.CAP_ROUND, BasicStroke.JOIN_BEVEL, 10f, dashes, 
+                1f), 0.5);
+        LineAttributes la2 = LineAttributes.of(new BasicStroke(2f, 
+                BasicStroke.CAP_ROUND, BasicStroke.JOIN_BEVEL, 10f, dashes, 
+                1f), 0.5);
+        assertSame(la1, la2);
+        assertArrayEquals(new double[] {4.0, 2.0}, la1.dashes);
+        LineAttributes zero = LineAttributes.of(new BasicStroke(0f), 0.5);
+        assertEquals(0.5, zero.lineWidth);
+        assertSame(zero, LineAttributes.of(new BasicStroke(0f), 0.5));
+        assertEquals(0.25, LineAttributes.of(new BasicStroke(0f), 0.25)
+                .lineWidth);
+
+        GraphicsContext gc = new Canvas(100, 100).getGraphicsContext2D();
+        FXGraphics2D g2 = new FXGraphics2D(gc);
+        g2.setStroke(new BasicStroke(0f));
+        g2.drawLine(0, 0, 10, 10);
+        assertEquals(0.5, gc.getLineWidth());
+        g2.setStroke(new BasicStroke(2f, BasicStroke.CAP_ROUND, 
+                BasicStroke.JOIN_BEVEL, 10f, dashes, 1f));
+        g2.drawLine(0, 0, 10, 10);
+        assertEquals(2.0, gc.getLineWidth());
+        assertArrayEquals(new double[] {4.0, 2.0}, gc.getLineDashes());
+        assertEquals(1.0, gc.getLineDashOffset());
+    }
+
+    /**
+     * Stroked outlines are reused for equal shapes and evicted when the
+     * segment limit is exceeded.
+     */
+    @Test
+    public void checkStrokedShapeCache() {
+        StrokedShapeCache cache = new StrokedShapeCache(100);
+        Stroke stroke = new BasicStroke(2f)::createStrokedShape;
+        PackedPath scratch = new PackedPath();
+        PackedPath p1 = cache.get(stroke, new Line2D.Double(0, 0, 10, 10), 
+                scratch);
+        PackedPath p2 = cache.get(stroke, new Line2D.Double(0, 0, 10, 10), 
+                scratch);
+        assertSame(p1, p2);
+        assertEquals(1, cache.getHitCount());
+        assertEquals(1, cache.getMissCount());
+        assertNotSame(p1, cache.get(stroke, new Line2D.Double(0, 0, 10, 11), 
+                scratch));
+        for (int i = 0; i < 50; i++) {
+            cache.get(stroke, new Line2D.Double(0, 0, i, 20), scratch);
+        }
+        assertTrue(cache.getSegmentCount() <= 100);
+        assertEquals(PackedPath.of(new Line2D.Double(1, 2, 3, 4)), 
+                new PackedPath().set(new Line2D.Double(1, 2, 3, 4)));
+    }
+
+    /**
+     * Equal AWT fonts resolve to the same JavaFX font, and the logical 
+     * dialog families are mapped to families that JavaFX recognises.
+     */
+    @Test
+    public void checkFontCache() {
+        FontCache cache = new FontCache(4);
+        javafx.scene.text.Font f1 = cache.get(new Font("Serif", Font.BOLD, 
+                14));
+        assertSame(f1, cache.get(new Font("Serif", Font.BOLD, 14)));
+        assertEquals(14.0, f1.getSize());
+        assertEquals(1, cache.size());
+        assertEquals("SansSerif", FontCache.toJavaFXFamily("Dialog"));
+        assertEquals("Monospaced", FontCache.toJavaFXFamily("DialogInput"));
+        assertEquals("Serif", FontCache.toJavaFXFamily("Serif"));
+    }
+
+    /**
+     * String bounds are found for equal text (including ranges of other
+     * character sequences) and the least recently used entries are evicted.
+     */
+    @Test
+    public void checkStringBoundsCache() {
+        StringBoundsCache cache = new StringBoundsCache(2);
+        Font f = new Font("Serif", Font.PLAIN, 12);
+        Rectangle2D r = new Rectangle2D.Double();
+        assertFalse(cache.get(f, "ABC", 0, 3, r));
+        cache.put(f, "ABC", new Rectangle2D.Double(0, -10, 20, 12));
+        assertTrue(cache.get(f, "ABC", 0, 3, r));
+        assertEquals(new Rectangle2D.Double(0, -10, 20, 12), r);
+        assertTrue(cache.get(f, new StringBuilder("xABCx"), 1, 4, r));
+        assertFalse(cache.get(f.deriveFont(14f), "ABC", 0, 3, r));
+        r.setRect(1, 1, 1, 1);
+        assertTrue(cache.get(f, "ABC", 0, 3, r));
+        assertEquals(20.0, r.getWidth());
+        cache.put(f, "D", new Rectangle2D.Double(0, -10, 5, 12));
+        cache.put(f, "E", new Rectangle2D.Double(0, -10, 5, 12));
+        assertEquals(2, cache.size());
+        assertFalse(cache.get(f, "ABC", 0, 3, r));
+        assertEquals(3, cache.getHitCount());
+        assertEquals(3, cache.getMissCount());
+        cache.setMaxSize(0);
+        assertEquals(0, cache.size());
+    }
+
+    /**
+     * Widths are summed from the measured advances, characters are measured
+     * once, and uncovered characters are reported as {@code NaN}.
+     */
+    @Test
+    public void checkCharAdvances() {
+        int[] count = new int[1];
+        CharAdvances advances = new CharAdvances(s -> {
+            count[0]++;
+            return s.charAt(0) == 'W' ? 10.0 : 5.0;
+        }, -12.0, 15.0);
+        assertEquals(20.0, advances.width("aWa", 0, 3));
+        assertEquals(2, count[0]);
+        assertEquals(30.0, advances.width(new StringBuilder("WaWa"), 0, 4));
+        assertEquals(2, count[0]);
+        assertTrue(Double.isNaN(advances.width("a\tb", 0, 3)));
+        assertTrue(Double.isNaN(advances.width("a\u4e2d", 0, 2)));
+        assertEquals(5.0, advances.width("a\u4e2d", 0, 1));
+        advances.disable();
+        assertTrue(Double.isNaN(advances.advance('a')));
+    }
+
+    /**
+     * Font metrics are shared between instances, and are for the requested
+     * font rather than the current font.
+     */
+    @Test
+    public void checkFontMetricsPool() {
+        GraphicsContext gc = new Canvas(100, 100).getGraphicsContext2D();
+        FXGraphics2D g2 = new FXGraphics2D(gc);
+        Graphics2D copy = (Graphics2D) g2.create();
+        Font f = new Font("Serif", Font.ITALIC, 17);
+        FontMetrics fm = g2.getFontMetrics(f);
+        assertTrue(fm instanceof FXFontMetrics);
+        assertEquals(f, fm.getFont());
+        assertSame(fm, copy.getFontMetrics(f));
+        g2.setRenderingHint(FXHints.KEY_USE_FX_FONT_METRICS, false);
+        copy.setRenderingHint(FXHints.KEY_USE_FX_FONT_METRICS, false);
+        FontMetrics java2D = g2.getFontMetrics(f);
+        assertFalse(java2D instanceof FXFontMetrics);
+        assertSame(java2D, copy.getFontMetrics(f));
+        copy.dispose();
+    }
+
+    /**
+     * Strings are rasterized on their second use, and the least recently
+     * used sprites are evicted when the memory limit is exceeded.
+     */
+    @Test
+    public void checkTextSpriteCache() {
+        int[] count = new int[1];
+        TextSpriteCache cache = new TextSpriteCache(1000, 
+                (text, font, color, m00, m10, m01, m11) -> {
+                    count[0]++;
+                    return new TextSpriteCache.Sprite(null, 0.0, -10.0, 
+                            text.length() * 100L);
+                });
+        Font f = new Font("Serif", Font.PLAIN, 12);
+        AffineTransform t = new AffineTransform();
+        assertNull(cache.get("A", f, Color.BLACK, t));
+        assertEquals(0, count[0]);
+        TextSpriteCache.Sprite s = cache.get("A", f, Color.BLACK, t);
+        assertNotNull(s);
+        assertSame(s, cache.get("A", f, Color.BLACK, t));
+        assertEquals(1, count[0]);
+        assertNull(cache.get("A", f, Color.RED, t));
+        assertNull(cache.get("A", f, Color.BLACK, 
+                AffineTransform.getRotateInstance(Math.PI / 2)));
+        t.translate(10.0, 20.0);
+        assertSame(s, cache.get("A", f, Color.BLACK, t));
+        cache.get("ABCDEFGHIJ", f, Color.BLACK, t);
+        cache.get("ABCDEFGHIJ", f, Color.BLACK, t);
+        assertEquals(1, cache.size());
+        assertEquals(1000, cache.getByteCount());
+    }
+
+    /**
+     * Attributed text is split into style runs, and text with attributes 
+     * that cannot be drawn as runs is rejected.
+     */
+    @Test
+    public void checkStyledTextRuns() {
+        AttributedString as = new AttributedString("Hello World");
+        as.addAttribute(TextAttribute.FAMILY, "Serif");
+        as.addAttribute(TextAttribute.SIZE, 14f);
+        as.addAttribute(TextAttribute.FOREGROUND, Color.RED, 0, 5);
+        as.addAttribute(TextAttribute.UNDERLINE, TextAttribute.UNDERLINE_ON, 
+                6, 11);
+        StyledText st = StyledText.parse(as.getIterator());
+        assertEquals("Hello World", st.text);
+        assertEquals(3, st.runs.length);
+        assertEquals(Color.RED, st.runs[0].foreground);
+        assertEquals(14f, st.runs[0].font.getSize2D());
+        assertEquals(5, st.runs[1].start);
+        assertNull(st.runs[1].foreground);
+        assertFalse(st.runs[1].underline);
+        assertTrue(st.runs[2].underline);
+        assertEquals(st, StyledText.parse(as.getIterator()));
+        StyledText.Key key = StyledText.Key.of(as.getIterator());
+        assertEquals(key, StyledText.Key.of(as.getIterator()));
+        as.addAttribute(TextAttribute.FOREGROUND, Color.BLUE, 0, 5);
+        assertNotEquals(key, StyledText.Key.of(as.getIterator()));
+
+        as.addAttribute(TextAttribute.SUPERSCRIPT, 
+                TextAttribute.SUPERSCRIPT_SUPER, 0, 1);
+        assertNull(StyledText.parse(as.getIterator()));
+    }
+
+    /**
+     * Glyph outlines are cached per font and glyph code, relative to the 
+     * glyph origin.
+     */
+    @Test
+    public void checkGlyphOutlineCache() {
+        GlyphOutlineCache cache = new GlyphOutlineCache(100000);
+        Font f = new Font("Serif", Font.PLAIN, 20);
+        FontRenderContext frc = new FontRenderContext(null, false, true);
+        GlyphVector gv = f.createGlyphVector(frc, "AA");
+        Point2D p0 = gv.getGlyphPosition(0);
+        Point2D p1 = gv.getGlyphPosition(1);
+        PackedPath a0 = cache.get(gv, 0, (float) p0.getX(), 
+                (float) p0.getY());
+        PackedPath a1 = cache.get(gv, 1, (float) p1.getX(), 
+                (float) p1.getY());
+        assertSame(a0, a1);
+        assertEquals(1, cache.size());
+        assertEquals(PackedPath.of(f.createGlyphVector(frc, "A")
+                .getGlyphOutline(0)), a0);
+    }
+
+    /**
+     * Cached path segments are reused for the same path and version, and 
+     * rebuilt when the version changes.
+     */
+    @Test
+    public void checkPathCache() {
+        PathCache cache = new PathCache();
+        Path2D path = new Path2D.Double();
+        path.moveTo(0, 0);
+        path.lineTo(10, 10);
+        PackedPath p1 = cache.get(path, 1L);
+        assertSame(p1, cache.get(path, 1L));
+        path.lineTo(20, 5);
+        PackedPath p2 = cache.get(path, 2L);
+        assertNotSame(p1, p2);
+        assertEquals(3, p2.getSegmentCount());
+        assertEquals(1, cache.getHitCount());
+        assertEquals(1, cache.size());
+
+        assertTrue(FXHints.KEY_CACHE_SHAPE_PATHS.isCompatibleValue(3L));
+        assertTrue(FXHints.KEY_CACHE_SHAPE_PATHS.isCompatibleValue(
+                Boolean.FALSE));
+        assertFalse(FXHints.KEY_CACHE_SHAPE_PATHS.isCompatibleValue(
+                Boolean.TRUE));
+    }
+
+    /**
+     * Polylines and polygons are drawn with the non-zero winding rule, for 
+     * both the int and double coordinate methods.
+     */
+    @Test
+    public void checkPolygons() {
+        GraphicsContext gc = new Canvas(100, 100).getGraphicsContext2D();
+        gc.setFillRule(FillRule.EVEN_ODD);
+        FXGraphics2D g2 = new FXGraphics2D(gc);
+        g2.clip(new Rectangle2D.Double(0, 0, 50, 50));
+        g2.fillPolygon(new int[] {0, 10, 10, 0}, new int[] {0, 0, 10, 10}, 4);
+        assertEquals(FillRule.NON_ZERO, gc.getFillRule());
+        g2.setStroke(new BasicStroke(4f));
+        g2.drawPolyline(new double[] {0, 10, 20}, new double[] {0, 10, 0}, 3);
+        assertEquals(4.0, gc.getLineWidth());
+        g2.drawPolygon(new int[] {1, 2, 3}, new int[] {4, 5, 6}, 0);
+        g2.setStroke(new BasicStroke(2f)::createStrokedShape);
+        g2.drawPolygon(new int[] {1, 20, 3}, new int[] {4, 5, 60}, 3);
+    }
+
+    /**
+     * Decimation keeps at most four vertices per device pixel column, 
+     * including the extremes, and rejects paths with curves.
+     */
+    @Test
+    public void checkLineDecimation() {
+        int n = 1000;
+        double[] x = new double[n];
+        double[] y = new double[n];
+        for (int i = 0; i < n; i++) {
+            x[i] = i / 100.0;
+            y[i] = Math.sin(i);
+        }
+        y[555] = 50.0;
+        LineDecimator d = new LineDecimator();
+        d.decimate(x, y, n, new AffineTransform());
+        assertTrue(d.count <= 40);
+        assertEquals(0.0, d.xs[0]);
+        assertEquals(x[n - 1], d.xs[d.count - 1]);
+        boolean spike = false;
+        for (int i = 0; i < d.count; i++) {
+            spike = spike || d.ys[i] == 50.0;
+        }
+        assertTrue(spike);
+
+        // the transform determines the pixel columns
+        d.decimate(x, y, n, AffineTransform.getScaleInstance(100.0, 1.0));
+        assertEquals(n, d.count);
+
+        Path2D path = new Path2D.Double();
+        path.moveTo(0, 0);
+        path.lineTo(0.2, 1);
+        path.lineTo(0.4, 2);
+        path.lineTo(0.6, 3);
+        path.closePath();
+        path.moveTo(5, 5);
+        path.lineTo(6, 6);
+        assertTrue(d.decimate(path.getPathIterator(null), 
+                new AffineTransform()));
+        assertEquals(2, d.subpathCount);
+        assertTrue(d.closed[0]);
+        assertEquals(2, d.starts[1]);
+        assertEquals(4, d.count);
+        path.quadTo(1, 2, 3, 4);
+        assertFalse(d.decimate(path.getPathIterator(null), 
+                new AffineTransform()));
+    }
+
+    /**
+     * Operations outside the canvas or clip, or with a transparent paint, 
+     * are skipped only while culling is switched on.
+     */
+    @Test
+    public void checkCulling() {
+        GraphicsContext gc = new Canvas(100, 100).getGraphicsContext2D();
+        FXGraphics2D g2 = new FXGraphics2D(gc);
+        g2.fillRect(150, 10, 20, 20);
+        assertEquals(0, g2.getCulledCount());
+        g2.setRenderingHint(FXHints.KEY_CULL_INVISIBLE, true);
+        g2.fillRect(10, 10, 20, 20);
+        assertEquals(0, g2.getCulledCount());
+        g2.fillRect(150, 10, 20, 20);
+        g2.draw(new Line2D.Double(-50, -50, -10, -10));
+        assertEquals(2, g2.getCulledCount());
+
+        // a wide stroke can reach into the canvas
+        g2.setStroke(new BasicStroke(30f));
+        g2.draw(new Line2D.Double(-10, -10, -10, 50));
+        assertEquals(2, g2.getCulledCount());
+
+        // the transform is applied to the bounds
+        g2.translate(-200, 0);
+        g2.fillRect(210, 10, 20, 20);
+        assertEquals(2, g2.getCulledCount());
+        g2.translate(200, 0);
+
+        Graphics2D copy = (Graphics2D) g2.create();
+        copy.clipRect(0, 0, 50, 50);
+        copy.fillRect(60, 60, 10, 10);
+        assertEquals(3, g2.getCulledCount());
+        copy.dispose();
+
+        // polylines and polygons
+        g2.setStroke(new BasicStroke(1f));
+        g2.drawPolyline(new double[] {150, 160, 170}, 
+                new double[] {10, 20, 10}, 3);
+        g2.fillPolygon(new int[] {-30, -20, -10}, new int[] {10, 20, 10}, 3);
+        assertEquals(5, g2.getCulledCount());
+        g2.drawPolyline(new double[] {50, 160, 170}, 
+                new double[] {10, 20, 10}, 3);
+        assertEquals(5, g2.getCulledCount());
+
+        g2.setPaint(new Color(255, 0, 0, 0));
+        g2.fillRect(10, 10, 20, 20);
+        g2.drawPolygon(new int[] {10, 20, 30}, new int[] {10, 20, 10}, 3);
+        assertEquals(7, g2.getCulledCount());
+
+        g2.setRenderingHint(FXHints.KEY_CULL_INVISIBLE, false);
+        g2.fillRect(150, 10, 20, 20);
+        assertEquals(7, g2.getCulledCount());
+    }
+
+    /**
+     * Sub-pixel rectangles and ellipses are drawn as single pixels, and 
+     * repeats on the same pixel are skipped until something else changes.
+     */
+    @Test
+    public void checkLevelOfDetail() {
+        GraphicsContext gc = new Canvas(100, 100).getGraphicsContext2D();
+        FXGraphics2D g2 = new FXGraphics2D(gc);
+        assertTrue(FXHints.KEY_LOD_THRESHOLD.isCompatibleValue(1.5));
+        assertFalse(FXHints.KEY_LOD_THRESHOLD.isCompatibleValue("1.5"));
+        g2.setRenderingHint(FXHints.KEY_LOD_THRESHOLD, 2.0);
+        g2.setPaint(Color.BLUE);
+
+        // repeated sub-pixel shapes on the same pixel are drawn once
+        for (int i = 0; i < 10; i++) {
+            g2.fill(new Ellipse2D.Double(10.1 + i * 0.05, 10.2, 0.5, 0.5));
+        }
+        assertEquals(9, g2.getCulledCount());
+        g2.fill(new Rectangle2D.Double(11.2, 10.2, 0.5, 0.5));
+        assertEquals(9, g2.getCulledCount());
+
+        // anything drawn in between starts a new generation
+        g2.fillRect(50, 50, 20, 20);
+        g2.fill(new Ellipse2D.Double(10.1, 10.2, 0.5, 0.5));
+        assertEquals(9, g2.getCulledCount());
+
+        // so does a change of paint
+        g2.setPaint(Color.RED);
+        g2.fill(new Ellipse2D.Double(10.1, 10.2, 0.5, 0.5));
+        g2.fill(new Ellipse2D.Double(10.3, 10.2, 0.5, 0.5));
+        assertEquals(10, g2.getCulledCount());
+
+        // the stroke width counts towards the size
+        g2.setStroke(new BasicStroke(3f));
+        g2.draw(new Ellipse2D.Double(10.1, 10.2, 0.5, 0.5));
+        assertEquals(10, g2.getCulledCount());
+
+        // translucent paints are never skipped
+        g2.setPaint(new Color(255, 0, 0, 128));
+        g2.fill(new Ellipse2D.Double(10.1, 10.2, 0.5, 0.5));
+        g2.fill(new Ellipse2D.Double(10.1, 10.2, 0.5, 0.5));
+        assertEquals(10, g2.getCulledCount());
+
+        // copies share the stamps, but a copy starts a new generation
+        g2.setPaint(Color.BLUE);
+        g2.fill(new Ellipse2D.Double(30.1, 30.2, 0.5, 0.5));
+        Graphics2D copy = (Graphics2D) g2.create();
+        copy.fill(new Ellipse2D.Double(30.1, 30.2, 0.5, 0.5));
+        copy.fill(new Ellipse2D.Double(30.1, 30.2, 0.5, 0.5));
+        copy.dispose();
+        assertEquals(11, g2.getCulledCount());
+
+        // a singular transform draws nothing
+        g2.scale(0.0, 0.0);
+        g2.fill(new Ellipse2D.Double(10.1, 10.2, 0.5, 0.5));
+        g2.setTransform(null);
+
+        g2.setRenderingHint(FXHints.KEY_LOD_THRESHOLD, null);
+        g2.fill(new Ellipse2D.Double(10.1, 10.2, 0.5, 0.5));
+        g2.fill(new Ellipse2D.Double(10.1, 10.2, 0.5, 0.5));
+        assertEquals(11, g2.getCulledCount());
+    }
+
+    /**
+     * Line segments are collected in the state handler and the paint is 
+     * applied when a new batch starts.
+     */
+    @Test
+    public void checkLineBatching() {
+        GraphicsContext gc = new Canvas(100, 100).getGraphicsContext2D();
+        GCStateHandler h = new GCStateHandler(gc);
+        for (int i = 0; i < 100; i++) {
+            h.addLine(0, i, 100, i);
+        }
+        assertEquals(100, h.lineCount);
+        h.flush();
+        assertEquals(0, h.lineCount);
+
+        FXGraphics2D g2 = new FXGraphics2D(gc);
+        g2.setRenderingHint(FXHints.KEY_BATCH_LINES, true);
+        g2.setPaint(Color.RED);
+        for (int i = 0; i < 10; i++) {
+            g2.drawLine(0, i * 10, 100, i * 10);
+        }
+        // the paint is applied to the graphics context with the first line
+        assertEquals(javafx.scene.paint.Color.RED, gc.getStroke());
+        g2.setPaint(Color.BLUE);
+        g2.drawLine(0, 0, 100, 100);
+        assertEquals(javafx.scene.paint.Color.BLUE, gc.getStroke());
+        g2.flush();
+        g2.dispose();
+    }
+
+    /**
+     * The fast paths in hit() for shapes and stroked outlines, with and 
+     * without rotation.
+     */
+    @Test
+    public void checkHit() {
+        GraphicsContext gc = new Canvas(100, 100).getGraphicsContext2D();
+        FXGraphics2D g2 = new FXGraphics2D(gc);
+        java.awt.Rectangle r = new java.awt.Rectangle(0, 0, 1, 1);
+        Ellipse2D e = new Ellipse2D.Double(0, 0, 10, 10);
+        assertFalse(g2.hit(r, e, false));
+        r.setLocation(4, 4);
+        assertTrue(g2.hit(r, e, false));
+        assertFalse(g2.hit(r, e, true));
+        g2.translate(10, 0);
+        assertFalse(g2.hit(r, e, false));
+        r.setLocation(14, 4);
+        assertTrue(g2.hit(r, e, false));
+
+        // a rotation uses the path of the transformed shape
+        g2.rotate(Math.PI / 4);
+        assertTrue(g2.hit(new java.awt.Rectangle(10, 2, 2, 2), 
+                new Rectangle2D.Double(0, 0, 10, 10), false));
+        assertFalse(g2.hit(new java.awt.Rectangle(15, 0, 2, 2), 
+                new Rectangle2D.Double(0, 0, 10, 10), false));
+        g2.setTransform(null);
+
+        // the stroked outline of a line
+        g2.setStroke(new BasicStroke(4f));
+        Line2D line = new Line2D.Double(0, 50, 100, 50);
+        assertTrue(g2.hit(new java.awt.Rectangle(20, 51, 1, 1), line, true));
+        assertFalse(g2.hit(new java.awt.Rectangle(20, 53, 1, 1), line, 
+                true));
+        assertFalse(g2.hit(new java.awt.Rectangle(20, 80, 1, 1), line, 
+                true));
+        assertFalse(g2.hit(new java.awt.Rectangle(20, 49, 2, 2), line, 
+                false));
+
+        // a segment that does not bound the interior is not a hit
+        Path2D path = new Path2D.Double();
+        path.moveTo(0, 0);
+        path.lineTo(10, 0);
+        path.lineTo(10, 10);
+        path.closePath();
+        path.moveTo(20, 0);
+        path.lineTo(30, 0);
+        java.awt.Rectangle spur = new java.awt.Rectangle(24, -1, 2, 2);
+        assertTrue(Path2D.intersects(path.getPathIterator(null), 24, -1, 
+                2, 2));
+        assertFalse(g2.hit(spur, path, false));
+        assertTrue(g2.hit(new java.awt.Rectangle(8, 1, 1, 1), path, false));
+    }
+
+    /**
+     * Point and rectangle queries return the topmost ids first, and drawing
+     * records ids only while the pick id hint is set.
+     */
+    @Test
+    public void checkPickIndex() {
+        FXPickIndex index = new FXPickIndex(10.0);
+        index.add("A", 0, 0, 100, 100);
+        index.add("B", 20, 20, 10, 10);
+        index.add("C", 25, 25, 50, 50);
+        assertEquals(3, index.size());
+        assertEquals("A", index.getIdAt(5, 5));
+        assertEquals("B", index.getIdAt(22, 22));
+        assertEquals("C", index.getIdAt(27, 27));
+        assertEquals(List.of("C", "B", "A"), index.getIdsAt(27, 27));
+        assertNull(index.getIdAt(150, 150));
+        assertEquals(List.of("C", "B", "A"), 
+                index.getIds(new Rectangle2D.Double(21, 21, 40, 40)));
+        assertEquals(List.of("B", "A"), 
+                index.getIds(new Rectangle2D.Double(15, 15, 6, 6)));
+        index.clear();
+        assertEquals(0, index.size());
+        assertNull(index.getIdAt(5, 5));
+
+        GraphicsContext gc = new Canvas(200, 200).getGraphicsContext2D();
+        FXGraphics2D g2 = new FXGraphics2D(gc);
+        g2.setPickIndex(index);
+        g2.fillRect(0, 0, 10, 10);
+        assertEquals(0, index.size());
+        g2.setRenderingHint(FXHints.KEY_PICK_ID, "bar");
+        g2.translate(50, 50);
+        g2.fillRect(0, 0, 20, 20);
+        Graphics2D copy = (Graphics2D) g2.create();
+        copy.setRenderingHint(FXHints.KEY_PICK_ID, "line");
+        copy.setStroke(new BasicStroke(2f));
+        copy.draw(new Line2D.Double(0, 40, 100, 40));
+        copy.dispose();
+        assertEquals(2, index.size());
+        assertEquals("bar", index.getIdAt(60, 60));
+        assertEquals("line", index.getIdAt(100, 90));
+        assertNull(index.getIdAt(5, 5));
+
+        // bounds are clipped to the canvas, and hidden items are skipped
+        g2.setRenderingHint(FXHints.KEY_PICK_ID, "off");
+        g2.fillRect(500, 500, 20, 20);
+        assertEquals(2, index.size());
+        g2.setRenderingHint(FXHints.KEY_PICK_ID, "huge");
+        g2.fill(new Rectangle2D.Double(-1e6, -1e6, 2e6, 2e6));
+        assertEquals(3, index.size());
+        assertEquals("huge", index.getIdAt(190, 190));
+        assertTrue(index.getIds(new Rectangle2D.Double(300, 300, 10, 10))
+                .isEmpty());
+
+        // a cached stroked outline records the bounds of the outline
+        index.clear();
+        g2.setRenderingHint(FXHints.KEY_PICK_ID, "stroked");
+        g2.setRenderingHint(FXHints.KEY_CACHE_STROKED_SHAPES, true);
+        g2.setStroke(shape -> new Rectangle2D.Double(0, 0, 30, 30));
+        g2.draw(new Line2D.Double(0, 0, 1, 1));
+        assertEquals("stroked", index.getIdAt(75, 75));
+    }
+
+    /**
+     * Rectangular clips stay rectangles under rectilinear transforms.
+     */
+    @Test
+    public void checkRectangularClip() {
+        GraphicsContext gc = new Canvas(200, 200).getGraphicsContext2D();
+        FXGraphics2D g2 = new FXGraphics2D(gc);
+        g2.translate(10, 20);
+        g2.scale(2, -1);
+        g2.setClip(new Rectangle2D.Double(0, -50, 40, 40));
+        g2.clip(new Rectangle2D.Double(20, -80, 40, 60));
+        Shape clip = g2.getClip();
+        assertTrue(clip instanceof Rectangle2D);
+        assertEquals(new Rectangle2D.Double(20, -50, 20, 30), clip);
+        assertEquals(new java.awt.Rectangle(20, -50, 20, 30), 
+                g2.getClipBounds());
+
+        // a quadrant rotation keeps the clip rectangular
+        g2.setTransform(null);
+        g2.rotate(Math.PI / 2);
+        g2.setClip(new Rectangle2D.Double(0, -50, 40, 40));
+        assertTrue(g2.getClip() instanceof Rectangle2D);
+        g2.clip(new Rectangle2D.Double(100, 0, 10, 10));
+        assertTrue(g2.getClip().getBounds2D().isEmpty());
+
+        // other rotations do not
+        g2.setTransform(null);
+        g2.rotate(Math.PI / 6);
+        g2.setClip(new Rectangle2D.Double(0, 0, 40, 40));
+        assertFalse(g2.getClip() instanceof Rectangle2D);
+    }
+
+    /**
+     * The cached user space clip is returned as a copy and is recomputed 
+     * after every transform change.
+     */
+    @Test
+    public void checkCachedUserClip() {
+        GraphicsContext gc = new Canvas(200, 200).getGraphicsContext2D();
+        FXGraphics2D g2 = new FXGraphics2D(gc);
+        g2.setClip(new Rectangle2D.Double(10, 10, 50, 50));
+        g2.translate(10, 10);
+        Shape c1 = g2.getClip();
+        Shape c2 = g2.getClip();
+        assertEquals(new Rectangle2D.Double(0, 0, 50, 50), c1);
+        assertNotSame(c1, c2);
+        ((Rectangle2D) c1).setRect(1, 2, 3, 4);
+        assertEquals(new Rectangle2D.Double(0, 0, 50, 50), g2.getClip());
+        java.awt.Rectangle b = g2.getClipBounds();
+        b.setBounds(1, 2, 3, 4);
+        assertEquals(new java.awt.Rectangle(0, 0, 50, 50), 
+                g2.getClipBounds());
+
+        // every transform change invalidates the cached clip
+        g2.scale(2, 2);
+        assertEquals(new Rectangle2D.Double(0, 0, 25, 25), g2.getClip());
+        g2.rotate(Math.PI);
+        assertEquals(new Rectangle2D.Double(-25, -25, 25, 25), g2.getClip());
+        g2.setTransform(null);
+        assertEquals(new Rectangle2D.Double(10, 10, 50, 50), g2.getClip());
+        g2.clipRect(0, 0, 20, 20);
+        assertEquals(new java.awt.Rectangle(10, 10, 10, 10), 
+                g2.getClipBounds());
+        g2.scale(0, 0);
+        assertNull(g2.getClip());
+        g2.setClip(null);
+        assertNull(g2.getClipBounds());
+    }
+
+    /**
+     * Rectangle fills are collected in the state handler (with the 
+     * non-zero fill rule), except for proportional gradients.
+     */
+    @Test
+    public void checkRectBatching() {
+        GraphicsContext gc = new Canvas(100, 100).getGraphicsContext2D();
+        GCStateHandler h = new GCStateHandler(gc);
+        h.addLine(0, 0, 10, 10);
+        for (int i = 0; i < 100; i++) {
+            h.addRect(i, i, 1, 1);
+        }
+        assertEquals(100, h.rectCount);
+        h.flush();
+        assertEquals(0, h.lineCount);
+        assertEquals(0, h.rectCount);
+
+        FXGraphics2D g2 = new FXGraphics2D(gc);
+        g2.setRenderingHint(FXHints.KEY_BATCH_RECTS, true);
+        gc.setFillRule(FillRule.EVEN_ODD);
+        g2.setPaint(Color.RED);
+        for (int i = 0; i < 10; i++) {
+            g2.fillRect(i * 10, 0, 10, 10);
+        }
+        assertEquals(javafx.scene.paint.Color.RED, gc.getFill());
+        assertEquals(FillRule.NON_ZERO, gc.getFillRule());
+
+        // proportional gradients are applied per rectangle
+        g2.setRenderingHint(FXHints.KEY_PROPORTIONAL_GRADIENTS, true);
+        g2.setPaint(new GradientPaint(0f, 0f, Color.RED, 10f, 0f, 
+                Color.BLUE));
+        g2.fillRect(0, 20, 10, 10);
+        assertTrue(((javafx.scene.paint.LinearGradient) gc.getFill())
+                .isProportional());
+        g2.flush();
+    }
+
+}